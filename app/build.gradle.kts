@@ -8,6 +8,9 @@
 plugins {
     // Apply the application plugin to add support for building a CLI application in Java.
     application
+
+    // Apply the JMH plugin to add the 'jmh' source set and benchmark task.
+    alias(libs.plugins.jmh)
 }
 
 repositories {
@@ -41,3 +44,11 @@ tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
     useJUnitPlatform()
 }
+
+jmh {
+    // Record allocation rates alongside timings for every benchmark.
+    profilers = listOf("gc")
+
+    // Machine-readable results (build/results/jmh/results.json), so a run can be diffed against a baseline.
+    resultFormat = "JSON"
+}
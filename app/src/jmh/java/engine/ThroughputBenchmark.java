@@ -0,0 +1,76 @@
+package engine;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Scripts;
+import runtime.Output;
+import runtime.RtVal;
+
+/**
+ * ThroughputBenchmark.java
+ *
+ * Executions per millisecond of one CompiledScript shared by 1, 4 and all
+ * available threads, each with its own Output, against one engine whose
+ * global scope holds an object every execution reads. On a machine with n
+ * cores, allCores should approach n times singleThread; anything much lower
+ * points at contention on shared state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ThroughputBenchmark {
+
+  @Param({ "TREE", "VM" })
+  KitkatEngine.Backend backend;
+
+  KitkatEngine engine;
+  CompiledScript script;
+
+  @State(Scope.Thread)
+  public static class PerThread {
+    final Output out = new Output(Writer.nullWriter());
+  }
+
+  @Setup
+  public void setup() {
+    runtime.Scope globals = KitkatEngine.createGlobals("const config = { rate: 3, limit: 1000, };",
+        new Output(Writer.nullWriter()));
+    engine = new KitkatEngine(globals, backend, true);
+    script = engine.compile("let scaled = config.rate * config.limit;\n" + Scripts.generate(16384, true));
+  }
+
+  @Benchmark
+  @Threads(1)
+  public RtVal singleThread(PerThread t) {
+    return engine.execute(script, t.out);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public RtVal fourThreads(PerThread t) {
+    return engine.execute(script, t.out);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public RtVal allCores(PerThread t) {
+    return engine.execute(script, t.out);
+  }
+}
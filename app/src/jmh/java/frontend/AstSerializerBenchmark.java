@@ -0,0 +1,59 @@
+package frontend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.ast.Program;
+
+/**
+ * AstSerializerBenchmark.java
+ *
+ * Startup cost of getting a Program from source text versus loading the same
+ * Program from its precompiled .katc bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AstSerializerBenchmark {
+
+  @Param({ "65536", "1048576", "8388608" })
+  int sourceBytes;
+
+  String source;
+  byte[] compiled;
+
+  @Setup
+  public void setup() throws IOException {
+    source = Scripts.generate(sourceBytes);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AstSerializer.write(new Parser().createAST(source), out);
+    compiled = out.toByteArray();
+  }
+
+  @Benchmark
+  public Program parseSource() {
+    return new Parser().createAST(source);
+  }
+
+  @Benchmark
+  public Program loadCompiled() {
+    return AstSerializer.read(ByteBuffer.wrap(compiled));
+  }
+}
@@ -0,0 +1,80 @@
+package frontend;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.ast.Program;
+
+/**
+ * FrontEndBenchmark.java
+ *
+ * Tokenising and parsing generated scripts from 1 KB up to 100 MB, plus the
+ * shapes that stress the recursive descent: deeply nested object literals and
+ * long arithmetic expressions. Tokenising pulls tokens one at a time, as the
+ * Parser does, rather than collecting them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Xss16m" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FrontEndBenchmark {
+
+  @Param({ "1024", "1048576", "104857600" })
+  int sourceBytes;
+
+  // depth of the nested object literal, and operands in the arithmetic chain
+  @Param({ "10", "1000" })
+  int size;
+
+  String source;
+  String nested;
+  String arithmetic;
+
+  @Setup
+  public void setup() {
+    source = Scripts.generate(sourceBytes);
+    nested = Scripts.nestedObject(size);
+    arithmetic = Scripts.arithmeticChain(size);
+  }
+
+  private static int countTokens(String src) {
+    Lexer lexer = new Lexer(src);
+    int n = 0;
+    while (lexer.next().type != TokenType.EOF)
+      n++;
+    return n;
+  }
+
+  @Benchmark
+  public int tokenise() {
+    return countTokens(source);
+  }
+
+  @Benchmark
+  public Program parse() {
+    return new Parser().createAST(source);
+  }
+
+  @Benchmark
+  public Program parseNestedObject() {
+    return new Parser().createAST(nested);
+  }
+
+  @Benchmark
+  public Program parseArithmeticChain() {
+    return new Parser().createAST(arithmetic);
+  }
+}
@@ -0,0 +1,50 @@
+package frontend;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LexerBenchmark.java
+ *
+ * Compares the cursor based Lexer against the original Deque<Character> lexer
+ * on large generated scripts. Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LexerBenchmark {
+
+  @Param({ "65536", "1048576", "8388608" })
+  int sourceBytes;
+
+  String source;
+
+  @Setup
+  public void setup() {
+    source = Scripts.generate(sourceBytes);
+  }
+
+  @Benchmark
+  public int cursorLexer() {
+    return Lexer.tokenise(source).size();
+  }
+
+  @Benchmark
+  public int dequeLexer() {
+    return DequeLexer.tokenise(source).size();
+  }
+}
@@ -0,0 +1,69 @@
+package frontend;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.ast.Program;
+
+/**
+ * ParallelParserBenchmark.java
+ *
+ * Parses a large generated script with Parser.createAST on one thread and with
+ * a ParallelParser on pools of 1 to 8 threads, to see how close to linearly
+ * the front end scales with cores. Thread counts above the machine's core
+ * count only show the cost of the extra chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelParserBenchmark {
+
+  @Param({ "1048576", "33554432" })
+  int sourceBytes;
+
+  @Param({ "1", "2", "4", "8" })
+  int threads;
+
+  String source;
+  ForkJoinPool pool;
+  ParallelParser parallelParser;
+  final Parser parser = new Parser();
+
+  @Setup
+  public void setup() {
+    source = Scripts.generate(sourceBytes);
+    pool = new ForkJoinPool(threads);
+    parallelParser = new ParallelParser(pool);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.close();
+  }
+
+  @Benchmark
+  public Program sequential() {
+    return parser.createAST(source);
+  }
+
+  @Benchmark
+  public Program parallel() {
+    return parallelParser.createAST(source);
+  }
+}
@@ -0,0 +1,65 @@
+package frontend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.ast.Program;
+
+/**
+ * ParserBenchmark.java
+ *
+ * Parses generated scripts from an in-memory String and by streaming them from
+ * a memory-mapped file. Compare the gc.alloc.rate.norm figures from -prof gc to
+ * see the memory saved by not materialising the token list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+  @Param({ "65536", "1048576", "8388608" })
+  int sourceBytes;
+
+  String source;
+  Path file;
+
+  @Setup
+  public void setup() throws IOException {
+    source = Scripts.generate(sourceBytes);
+    file = Files.createTempFile("parser-bench", ".kat");
+    Files.writeString(file, source);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public Program parseString() {
+    return new Parser().createAST(source);
+  }
+
+  @Benchmark
+  public Program parseMappedFile() throws IOException {
+    return new Parser().createAST(new MappedSourceReader(file));
+  }
+}
@@ -0,0 +1,62 @@
+package frontend;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import frontend.ast.Program;
+import frontend.ast.StatementNode;
+
+/**
+ * PositionBenchmark.java
+ *
+ * What source positions cost: parsing now records an offset per node and a
+ * line start per newline, compare parse against ParserBenchmark.parseString
+ * from before positions and check gc.alloc.rate.norm. lineLookups turns every
+ * top-level statement's offset back into a line and column, as reporting an
+ * error or profiling by line does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PositionBenchmark {
+
+  @Param({ "65536", "1048576" })
+  int sourceBytes;
+
+  String source;
+  Program program;
+
+  @Setup
+  public void setup() {
+    source = Scripts.generate(sourceBytes);
+    program = new Parser().createAST(source);
+  }
+
+  @Benchmark
+  public Program parse() {
+    return new Parser().createAST(source);
+  }
+
+  @Benchmark
+  public void lineLookups(Blackhole bh) {
+    for (StatementNode s : program.body) {
+      bh.consume(program.lines.line(s.getPosition()));
+      bh.consume(program.lines.column(s.getPosition()));
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package frontend;
+
+/**
+ * Scripts.java
+ *
+ * Generates synthetic kitkat source for the benchmarks.
+ */
+public class Scripts {
+
+  /**
+   * @return a script of independent top-level statements, at least `bytes` long
+   */
+  public static String generate(int bytes) {
+    return generate(bytes, true);
+  }
+
+  /**
+   * @param print include print statements? Leave them out when benchmarking
+   *              execution, so the console is not measured.
+   */
+  public static String generate(int bytes, boolean print) {
+    StringBuilder sb = new StringBuilder(bytes + 128);
+    int i = 0;
+    while (sb.length() < bytes) {
+      String id = name(i);
+      sb.append("# statement ").append(i).append('\n');
+      sb.append("let var_").append(id).append(" = (").append(i).append(" + 60) * 60 % 24;\n");
+      sb.append("const str_").append(id).append(" = \"value number ").append(i).append("\";\n");
+      sb.append("let obj_").append(id).append(" = { id: ").append(i)
+          .append(", name: str_").append(id).append(", nested: { ok: var_").append(id).append(" >= 10, }, };\n");
+      if (print)
+        sb.append("print(obj_").append(id).append(".nested.ok);\n");
+      else
+        sb.append("obj_").append(id).append(".id = obj_").append(id).append(".id + 1;\n");
+      i++;
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return `let nested = { child: { child: ... { leaf: 1, }, ... }, };` with
+   *         `depth` levels of object literals
+   */
+  public static String nestedObject(int depth) {
+    StringBuilder sb = new StringBuilder("let nested = ");
+    for (int i = 0; i < depth; i++)
+      sb.append("{ id: ").append(i).append(", child: ");
+    sb.append("{ leaf: 1, }");
+    for (int i = 0; i < depth; i++)
+      sb.append(", }");
+    return sb.append(";\n").toString();
+  }
+
+  /**
+   * @return `let total = 1 + 2 * 3 - 4 ...;`, one expression with `terms`
+   *         operands mixing every arithmetic operator
+   */
+  public static String arithmeticChain(int terms) {
+    String[] ops = { " + ", " * ", " - ", " % ", " + ", " / " };
+    StringBuilder sb = new StringBuilder("let total = 1");
+    for (int i = 1; i < terms; i++)
+      sb.append(ops[i % ops.length]).append(i % 9 + 1);
+    return sb.append(";\n").toString();
+  }
+
+  /**
+   * @return a script that builds an object `depth` levels deep and then reads
+   *         and writes its innermost property through `o.p.p...p.v` chains
+   */
+  public static String memberChain(int depth, int accesses) {
+    StringBuilder sb = new StringBuilder("let o = ");
+    for (int i = 0; i < depth; i++)
+      sb.append("{ p: ");
+    sb.append("{ v: 0, }");
+    for (int i = 0; i < depth; i++)
+      sb.append(", }");
+    sb.append(";\n");
+    String chain = "o" + ".p".repeat(depth) + ".v";
+    for (int i = 0; i < accesses; i++)
+      sb.append(chain).append(" = ").append(chain).append(" + 1;\n");
+    return sb.toString();
+  }
+
+  /**
+   * @return a unique identifier suffix for n (identifiers cannot contain digits)
+   */
+  public static String name(int n) {
+    StringBuilder sb = new StringBuilder();
+    do {
+      sb.append((char) ('a' + n % 26));
+      n /= 26;
+    } while (n > 0);
+    return sb.toString();
+  }
+}
@@ -0,0 +1,77 @@
+package frontend;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SourceLoadingBenchmark.java
+ *
+ * Time until the first statement of a large file has been lexed, loading the
+ * file the way App.runFile used to (Scanner with a `\Z` delimiter, reading
+ * the whole file into a String first) and through a MappedSourceReader.
+ * Single shot, since that is how a file is loaded. Run with -prof gc to
+ * compare allocation; the Scanner path allocates the whole file several
+ * times over before the lexer starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class SourceLoadingBenchmark {
+
+  @Param({ "1048576", "104857600" })
+  int sourceBytes;
+
+  Path file;
+
+  @Setup
+  public void setup() throws IOException {
+    file = Files.createTempFile("loading-bench", ".kat");
+    Files.writeString(file, Scripts.generate(sourceBytes));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private static Token firstStatement(Lexer lexer) {
+    Token t;
+    while ((t = lexer.next()).type != TokenType.SEMICOLON && t.type != TokenType.EOF)
+      ;
+    return t;
+  }
+
+  @Benchmark
+  public Token scanner() throws FileNotFoundException {
+    Scanner s = new Scanner(new File(file.toString()));
+    String str = s.useDelimiter("\\Z").next();
+    s.close();
+    return firstStatement(new Lexer(str));
+  }
+
+  @Benchmark
+  public Token mapped() throws IOException {
+    return firstStatement(new Lexer(new MappedSourceReader(file)));
+  }
+}
@@ -0,0 +1,78 @@
+package profiler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.Scripts;
+import frontend.ast.Program;
+import runtime.Interpreter;
+import runtime.Resolver;
+import runtime.RtVal;
+
+/**
+ * ProfilerBenchmark.java
+ *
+ * Overhead of profiling. `off` runs the plain Interpreter, in a JVM that has
+ * also loaded and run a ProfilingInterpreter so the JIT cannot assume
+ * Interpreter.evaluate is never overridden; compare it with `offUnloaded`
+ * (profiler never loaded) to check that profiling costs nothing when off.
+ * `on` shows the cost when it is on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProfilerBenchmark {
+
+  @Param({ "262144" })
+  int sourceBytes;
+
+  Program program;
+  final Interpreter interpreter = new Interpreter();
+
+  @Setup
+  public void setup() {
+    Program parsed = new Parser().createAST(Scripts.generate(sourceBytes, false));
+    program = Resolver.resolve(parsed, runtime.Scope.createGlobalScope());
+  }
+
+  @State(Scope.Benchmark)
+  public static class ProfilerLoaded {
+    @Setup
+    public void setup() {
+      Program p = new Parser().createAST(Scripts.generate(65536, false));
+      for (int i = 0; i < 100; i++)
+        new ProfilingInterpreter().execute(p, runtime.Scope.createGlobalScope());
+    }
+  }
+
+  @Benchmark
+  public RtVal offUnloaded() {
+    return interpreter.evaluateProgram(program, runtime.Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal off(ProfilerLoaded loaded) {
+    return interpreter.evaluateProgram(program, runtime.Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal on() {
+    // a new profiler per run, as the CLI does
+    return new ProfilingInterpreter().evaluateProgram(program, runtime.Scope.createGlobalScope());
+  }
+}
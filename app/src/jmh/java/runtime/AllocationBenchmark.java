@@ -0,0 +1,73 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.ast.Program;
+
+/**
+ * AllocationBenchmark.java
+ *
+ * Runs print-free scripts made of small-integer arithmetic, comparisons and
+ * literals, whose results mostly fit in the RtNumber cache. Read the
+ * gc.alloc.rate.norm column (added by the gc profiler configured in
+ * build.gradle.kts) for bytes allocated per run.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AllocationBenchmark {
+
+  @Param({ "1000" })
+  int statements;
+
+  final Interpreter interpreter = new Interpreter();
+  Program arithmetic;
+  Program comparisons;
+  Program literals;
+
+  @Setup
+  public void setup() {
+    StringBuilder a = new StringBuilder("let x = 0;\n");
+    StringBuilder c = new StringBuilder("let x = 1;\nlet b = false;\n");
+    StringBuilder l = new StringBuilder("let x = 0;\nlet s = \"\";\nlet b = null;\n");
+    for (int i = 0; i < statements; i++) {
+      a.append("x = (x + ").append(i % 7).append(") % 100 * 2 - 3;\n");
+      c.append("b = x < ").append(i % 50).append(";\nb = x == x;\n");
+      l.append("x = ").append(i % 500).append(";\ns = \"kitkat\";\nb = true;\n");
+    }
+    Parser parser = new Parser();
+    arithmetic = Resolver.resolve(parser.createAST(a.toString()), Scope.createGlobalScope());
+    comparisons = Resolver.resolve(parser.createAST(c.toString()), Scope.createGlobalScope());
+    literals = Resolver.resolve(parser.createAST(l.toString()), Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal arithmetic() {
+    return interpreter.evaluateProgram(arithmetic, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal comparisons() {
+    return interpreter.evaluateProgram(comparisons, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal literals() {
+    return interpreter.evaluateProgram(literals, Scope.createGlobalScope());
+  }
+}
@@ -0,0 +1,98 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ArrayBenchmark.java
+ *
+ * Builds and indexes lists of numbers three ways: a packed RtArray, a mixed
+ * RtArray holding one string among its numbers, and the workaround from before
+ * arrays, an RtObject keyed "0", "1", .... Each list is built by appending, as
+ * a script would. Divide the gc.alloc.rate.norm column of the build benchmarks
+ * by elements for bytes per element; the index benchmarks read every element.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ArrayBenchmark {
+
+  @Param({ "1000", "10000" })
+  int elements;
+
+  String[] keys;
+  RtArray packed;
+  RtArray mixed;
+  RtObject map;
+
+  @Setup
+  public void setup() {
+    keys = new String[elements];
+    for (int i = 0; i < elements; i++)
+      keys[i] = String.valueOf(i);
+    packed = buildPacked();
+    mixed = buildMixed();
+    map = buildMap();
+  }
+
+  @Benchmark
+  public RtArray buildPacked() {
+    RtArray a = RtArray.of(new int[0]);
+    for (int i = 0; i < elements; i++)
+      a.set(i, RtInt.of(i));
+    return a;
+  }
+
+  @Benchmark
+  public RtArray buildMixed() {
+    RtArray a = RtArray.of(new RtVal[] { new RtString("first") });
+    for (int i = 1; i < elements; i++)
+      a.set(i, RtInt.of(i));
+    return a;
+  }
+
+  @Benchmark
+  public RtObject buildMap() {
+    RtObject o = new RtObject();
+    for (int i = 0; i < elements; i++)
+      o.put(keys[i], RtInt.of(i));
+    return o;
+  }
+
+  @Benchmark
+  public long indexPacked() {
+    long sum = 0;
+    for (int i = 0; i < elements; i++)
+      sum += ((RtInt) packed.get(i)).val;
+    return sum;
+  }
+
+  @Benchmark
+  public long indexMixed() {
+    long sum = 0;
+    for (int i = 1; i < elements; i++)
+      sum += ((RtInt) mixed.get(i)).val;
+    return sum;
+  }
+
+  @Benchmark
+  public long indexMap() {
+    long sum = 0;
+    for (int i = 0; i < elements; i++)
+      sum += ((RtInt) map.get(keys[i])).val;
+    return sum;
+  }
+}
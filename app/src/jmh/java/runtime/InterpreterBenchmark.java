@@ -0,0 +1,67 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.Scripts;
+import frontend.ast.Program;
+
+/**
+ * InterpreterBenchmark.java
+ *
+ * The tree-walking Interpreter's hot paths on already parsed programs: building
+ * deeply nested object literals, evaluating one long arithmetic expression,
+ * and reading and writing through member-access chains of varying length.
+ * Programs are run through Interpreter.execute, so resolving is included.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xss16m" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class InterpreterBenchmark {
+
+  // depth of the nested object / member chain, and operands in the arithmetic chain
+  @Param({ "4", "64", "1000" })
+  int size;
+
+  final Interpreter interpreter = new Interpreter();
+  Program nested;
+  Program arithmetic;
+  Program memberChain;
+
+  @Setup
+  public void setup() {
+    Parser parser = new Parser();
+    nested = parser.createAST(Scripts.nestedObject(size));
+    arithmetic = parser.createAST(Scripts.arithmeticChain(size));
+    memberChain = parser.createAST(Scripts.memberChain(size, 100));
+  }
+
+  @Benchmark
+  public RtVal nestedObject() {
+    return interpreter.execute(nested, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal arithmeticChain() {
+    return interpreter.execute(arithmetic, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal memberChain() {
+    return interpreter.execute(memberChain, Scope.createGlobalScope());
+  }
+}
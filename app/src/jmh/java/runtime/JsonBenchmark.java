@@ -0,0 +1,76 @@
+package runtime;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.Scripts;
+
+/**
+ * JsonBenchmark.java
+ *
+ * Loads the same records into a scope two ways: read by JsonReader from JSON
+ * text, and the old route, a `let data = { ... };` literal lexed, parsed and
+ * run by the Interpreter. Both start from text already in memory.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx8g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class JsonBenchmark {
+
+  @Param({ "1048576", "104857600" })
+  int sourceBytes;
+
+  String json;
+  String script;
+  final Interpreter interpreter = new Interpreter();
+
+  @Setup
+  public void setup() {
+    StringBuilder j = new StringBuilder(sourceBytes + 256).append('{');
+    StringBuilder s = new StringBuilder(sourceBytes + 256).append("let data = {");
+    for (int i = 0; j.length() < sourceBytes; i++) {
+      if (i > 0)
+        j.append(',');
+      j.append("\n\"r_").append(Scripts.name(i)).append("\": {\"id\": ").append(i).append(", \"name\": \"record ").append(i)
+          .append("\", \"score\": ").append(i % 100).append(".5, \"active\": ").append(i % 2 == 0)
+          .append(", \"tags\": {\"group\": ").append(i % 7).append(", \"owner\": \"user ").append(i % 13)
+          .append("\"}}");
+      s.append("\nr_").append(Scripts.name(i)).append(": { id: ").append(i).append(", name: \"record ").append(i)
+          .append("\", score: ").append(i % 100).append(".5, active: ").append(i % 2 == 0)
+          .append(", tags: { group: ").append(i % 7).append(", owner: \"user ").append(i % 13)
+          .append("\", }, },");
+    }
+    json = j.append("\n}").toString();
+    script = s.append("\n};").toString();
+  }
+
+  @Benchmark
+  public RtVal jsonReader() throws IOException {
+    Scope scope = Scope.createGlobalScope();
+    scope.declareVar("data", JsonReader.read(new StringReader(json)), true);
+    return scope.getVar("data");
+  }
+
+  @Benchmark
+  public RtVal literalScript() {
+    Scope scope = Scope.createGlobalScope();
+    interpreter.execute(new Parser().createAST(script), scope);
+    return scope.getVar("data");
+  }
+}
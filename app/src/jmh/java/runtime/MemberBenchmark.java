@@ -0,0 +1,62 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.ast.Program;
+
+/**
+ * MemberBenchmark.java
+ *
+ * Property access through shapes and inline caches: reads and writes of
+ * `a.b.c` chains, and creating objects from literals. There are no loops in the
+ * language, so each site runs once per run of the program; its cache is warmed
+ * by earlier runs, as it would be for a program run repeatedly by a server.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MemberBenchmark {
+
+  static final int STATEMENTS = 1000;
+
+  final Interpreter interpreter = new Interpreter();
+  Program monomorphic;
+  Program create;
+
+  @Setup
+  public void setup() {
+    StringBuilder mono = new StringBuilder("let a = { b: { c: { d: 1, e: 2, }, f: 3, }, g: 4, };\nlet t = 0;\n");
+    StringBuilder create = new StringBuilder("let o = null;\n");
+    for (int i = 0; i < STATEMENTS; i++) {
+      mono.append("t = a.b.c.d + a.b.f;\na.b.c.e = t;\n");
+      create.append("o = { x: ").append(i).append(", y: { z: ").append(i).append(", }, };\n");
+    }
+    Parser parser = new Parser();
+    monomorphic = Resolver.resolve(parser.createAST(mono.toString()), Scope.createGlobalScope());
+    this.create = Resolver.resolve(parser.createAST(create.toString()), Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal monomorphic() {
+    return interpreter.evaluateProgram(monomorphic, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal create() {
+    return interpreter.evaluateProgram(create, Scope.createGlobalScope());
+  }
+}
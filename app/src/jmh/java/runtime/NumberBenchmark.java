@@ -0,0 +1,109 @@
+package runtime;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NumberBenchmark.java
+ *
+ * Cost of an addition, multiplication and comparison at each tier of the
+ * numeric tower: cached ints, ints outside the cache, ints that overflow into
+ * long, longs, longs that overflow into BigInteger, BigIntegers and doubles.
+ * Use the gc profiler's gc.alloc.rate.norm to see which tiers allocate.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NumberBenchmark {
+
+  // fields rather than constants, so the JIT can't fold the operations away
+  RtNumber smallInt = RtNumber.of(12);
+  RtNumber largeInt = RtNumber.of(1_000_000);
+  RtNumber maxInt = RtNumber.of(Integer.MAX_VALUE);
+  RtNumber largeLong = RtNumber.of(1L << 40);
+  RtNumber maxLong = RtNumber.of(Long.MAX_VALUE);
+  RtNumber big = RtNumber.of(BigInteger.ONE.shiftLeft(100));
+  RtNumber dbl = RtNumber.of(1.5);
+
+  @Benchmark
+  public RtNumber addSmallInt() {
+    return Arithmetic.binary(smallInt, smallInt, "+");
+  }
+
+  @Benchmark
+  public RtNumber addLargeInt() {
+    return Arithmetic.binary(largeInt, largeInt, "+");
+  }
+
+  @Benchmark
+  public RtNumber addIntOverflow() {
+    return Arithmetic.binary(maxInt, maxInt, "+");
+  }
+
+  @Benchmark
+  public RtNumber addLong() {
+    return Arithmetic.binary(largeLong, largeLong, "+");
+  }
+
+  @Benchmark
+  public RtNumber addLongOverflow() {
+    return Arithmetic.binary(maxLong, maxLong, "+");
+  }
+
+  @Benchmark
+  public RtNumber addBig() {
+    return Arithmetic.binary(big, big, "+");
+  }
+
+  @Benchmark
+  public RtNumber addDouble() {
+    return Arithmetic.binary(dbl, dbl, "+");
+  }
+
+  @Benchmark
+  public RtNumber multiplyLargeInt() {
+    return Arithmetic.binary(largeInt, largeInt, "*");
+  }
+
+  @Benchmark
+  public RtNumber multiplyLongOverflow() {
+    return Arithmetic.binary(largeLong, largeLong, "*");
+  }
+
+  @Benchmark
+  public RtNumber multiplyBig() {
+    return Arithmetic.binary(big, big, "*");
+  }
+
+  @Benchmark
+  public boolean compareInt() {
+    return Arithmetic.compare(largeInt, maxInt, "<");
+  }
+
+  @Benchmark
+  public boolean compareLong() {
+    return Arithmetic.compare(largeLong, maxLong, "<");
+  }
+
+  @Benchmark
+  public boolean compareBig() {
+    return Arithmetic.compare(maxLong, big, "<");
+  }
+
+  @Benchmark
+  public boolean compareMixed() {
+    return Arithmetic.compare(largeInt, dbl, "<");
+  }
+}
@@ -0,0 +1,100 @@
+package runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.ast.Program;
+
+/**
+ * OutputBenchmark.java
+ *
+ * A script that prints numbers, strings and objects once per statement, run
+ * with print statements going through a buffered Output, against the same
+ * values written the old way, a flushed PrintStream.println of toString() per
+ * line. Both write to a stream that discards the bytes, so only the cost of
+ * producing the output is measured.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OutputBenchmark {
+
+  @Param({ "1000", "50000" })
+  int lines;
+
+  Program program;
+  RtVal[] printed;
+  Interpreter interpreter;
+  Output output;
+  final PrintStream printStream = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+
+  @Setup
+  public void setup() {
+    StringBuilder sb = new StringBuilder("let o = { name: \"kitkat\", size: 12, nested: { depth: 1, }, };\n");
+    for (int i = 0; i < lines; i++) {
+      switch (i % 3) {
+        case 0 -> sb.append("print(").append(i).append(" * 7919);\n");
+        case 1 -> sb.append("print(\"line number \" + \"").append(i).append("\");\n");
+        default -> sb.append("print(o);\n");
+      }
+    }
+    program = Resolver.resolve(new Parser().createAST(sb.toString()), Scope.createGlobalScope());
+
+    output = new Output(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+    interpreter = new Interpreter(output);
+
+    // the values the script prints, for the println baseline
+    Scope scope = Scope.createGlobalScope();
+    RtVal o = new Interpreter().evaluateProgram(Resolver.resolve(new Parser().createAST(
+        "let o = { name: \"kitkat\", size: 12, nested: { depth: 1, }, }; o;"), scope), scope);
+    printed = new RtVal[lines];
+    for (int i = 0; i < lines; i++) {
+      printed[i] = switch (i % 3) {
+        case 0 -> RtNumber.of(i * 7919);
+        case 1 -> new RtString("line number " + i);
+        default -> o;
+      };
+    }
+  }
+
+  @Benchmark
+  public RtVal bufferedOutput() {
+    RtVal result = interpreter.evaluateProgram(program, Scope.createGlobalScope());
+    output.flush();
+    return result;
+  }
+
+  @Benchmark
+  public void printlnPerLine() {
+    for (RtVal v : printed)
+      printStream.println(v.toString());
+  }
+
+  @Benchmark
+  public void appendOnly() throws IOException {
+    for (RtVal v : printed) {
+      v.appendTo(output);
+      output.append('\n');
+    }
+    output.flush();
+  }
+}
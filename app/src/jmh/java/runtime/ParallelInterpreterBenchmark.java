@@ -0,0 +1,72 @@
+package runtime;
+
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.Scripts;
+import frontend.ast.Program;
+
+/**
+ * ParallelInterpreterBenchmark.java
+ *
+ * Runs a script of independent top-level statements, prints included, on the
+ * tree-walking Interpreter and on the ParallelInterpreter with 1 to 8 threads.
+ * Printed text goes to a Writer that discards it.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelInterpreterBenchmark {
+
+  @Param({ "262144" })
+  int sourceBytes;
+
+  @Param({ "1", "2", "4", "8" })
+  int threads;
+
+  Program program;
+  ForkJoinPool pool;
+  Interpreter interpreter;
+  ParallelInterpreter parallel;
+
+  @Setup
+  public void setup() {
+    program = new Parser().createAST(Scripts.generate(sourceBytes, true));
+    pool = new ForkJoinPool(threads);
+    Output out = new Output(Writer.nullWriter());
+    interpreter = new Interpreter(out);
+    parallel = new ParallelInterpreter(out, pool);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public RtVal sequential() {
+    return interpreter.execute(program, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal parallel() {
+    return parallel.execute(program, Scope.createGlobalScope());
+  }
+}
@@ -0,0 +1,70 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.Scripts;
+import frontend.ast.Program;
+
+/**
+ * ResolverBenchmark.java
+ *
+ * Variable reads by name (hash lookups up the scope chain) versus reads of
+ * slots resolved ahead of time, on a script that declares `variables` globals
+ * and then reads them all back repeatedly.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ResolverBenchmark {
+
+  @Param({ "10", "1000" })
+  int variables;
+
+  final Interpreter interpreter = new Interpreter();
+  Program program;
+  Program resolved;
+
+  @Setup
+  public void setup() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < variables; i++)
+      sb.append("let v_").append(Scripts.name(i)).append(" = ").append(i).append(";\n");
+    sb.append("let total = 0;\n");
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < variables; i++)
+        sb.append("total = total + v_").append(Scripts.name(i)).append(";\n");
+    }
+    program = new Parser().createAST(sb.toString());
+    resolved = Resolver.resolve(program, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal byName() {
+    return interpreter.evaluateProgram(program, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal bySlot() {
+    return interpreter.evaluateProgram(resolved, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal resolveThenRun() {
+    return interpreter.execute(program, Scope.createGlobalScope());
+  }
+}
@@ -0,0 +1,72 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Scripts;
+
+/**
+ * ScopeBenchmark.java
+ *
+ * Variable lookups in a chain of `depth` nested scopes, each declaring
+ * `variables` variables, reading one declared in the outermost scope. Compares
+ * lookups by name, which walk the chain hashing the name at each level, with
+ * lookups by the (depth, slot) position the Resolver would give it.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ScopeBenchmark {
+
+  @Param({ "1", "8", "64" })
+  int depth;
+
+  @Param({ "4", "256" })
+  int variables;
+
+  Scope innermost;
+  String name;
+  int slot;
+
+  @Setup
+  public void setup() {
+    Scope s = Scope.createGlobalScope();
+    for (int d = 0; d < depth; d++) {
+      if (d > 0)
+        s = new Scope(s);
+      for (int i = 0; i < variables; i++)
+        s.declareVar("v_" + d + "_" + Scripts.name(i), RtNumber.of(i), false);
+    }
+    innermost = s;
+    name = "v_0_" + Scripts.name(variables / 2);
+    slot = Scope.createGlobalScope().size() + variables / 2;
+  }
+
+  @Benchmark
+  public RtVal byName() {
+    return innermost.getVar(name);
+  }
+
+  @Benchmark
+  public RtVal bySlot() {
+    return innermost.getSlot(depth - 1, slot);
+  }
+
+  @Benchmark
+  public RtVal assignByName() {
+    return innermost.assignVar(name, RtNumber.of(1));
+  }
+}
@@ -0,0 +1,84 @@
+package runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.Scripts;
+import frontend.ast.Program;
+
+/**
+ * SnapshotBenchmark.java
+ *
+ * Getting to the global scope a prelude of `globals` declarations builds (a
+ * mix of numbers, strings and objects, some shared), by parsing and running
+ * the prelude, by running it already parsed, and by restoring a snapshot of
+ * the scope it built.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SnapshotBenchmark {
+
+  @Param({ "1000", "100000" })
+  int globals;
+
+  String prelude;
+  Program parsed;
+  byte[] snapshot;
+
+  @Setup
+  public void setup() throws IOException {
+    StringBuilder sb = new StringBuilder("let shared = { kind: \"shared\", };\n");
+    for (int i = 0; i < globals; i++) {
+      String id = Scripts.name(i);
+      switch (i % 3) {
+        case 0 -> sb.append("let g_").append(id).append(" = ").append(i).append(";\n");
+        case 1 -> sb.append("const g_").append(id).append(" = \"global ").append(i).append("\";\n");
+        default -> sb.append("let g_").append(id).append(" = { id: ").append(i).append(", parent: shared, };\n");
+      }
+    }
+    prelude = sb.toString();
+    parsed = new Parser().createAST(prelude);
+
+    Scope scope = rerun();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ScopeSnapshot.write(scope, out);
+    snapshot = out.toByteArray();
+  }
+
+  @Benchmark
+  public Scope reparseAndRerun() {
+    Scope scope = Scope.createGlobalScope();
+    new Interpreter().execute(new Parser().createAST(prelude), scope);
+    return scope;
+  }
+
+  @Benchmark
+  public Scope rerun() {
+    Scope scope = Scope.createGlobalScope();
+    new Interpreter().execute(parsed, scope);
+    return scope;
+  }
+
+  @Benchmark
+  public Scope restore() {
+    return ScopeSnapshot.read(ByteBuffer.wrap(snapshot));
+  }
+}
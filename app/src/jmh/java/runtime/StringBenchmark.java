@@ -0,0 +1,68 @@
+package runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frontend.Parser;
+import frontend.ast.Program;
+
+/**
+ * StringBenchmark.java
+ *
+ * Long chains of string concatenation (`s = s + "..."`, once per statement),
+ * the same chain followed by a comparison that forces the result to be
+ * flattened, and `string * n` repetition.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StringBenchmark {
+
+  @Param({ "100", "10000" })
+  int length;
+
+  final Interpreter interpreter = new Interpreter();
+  Program concatChain;
+  Program concatThenCompare;
+  Program repeat;
+
+  @Setup
+  public void setup() {
+    StringBuilder sb = new StringBuilder("let s = \"\";\n");
+    for (int i = 0; i < length; i++)
+      sb.append("s = s + \"kitkat row \";\n");
+    Parser parser = new Parser();
+    concatChain = Resolver.resolve(parser.createAST(sb.toString()), Scope.createGlobalScope());
+    sb.append("let same = s == s;\n");
+    concatThenCompare = Resolver.resolve(parser.createAST(sb.toString()), Scope.createGlobalScope());
+    repeat = parser.createAST("let banner = \"=-\" * " + length + ";\nlet same = banner == banner;\n");
+  }
+
+  @Benchmark
+  public RtVal concatChain() {
+    return interpreter.evaluateProgram(concatChain, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal concatThenCompare() {
+    return interpreter.evaluateProgram(concatThenCompare, Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal repeat() {
+    return interpreter.evaluateProgram(repeat, Scope.createGlobalScope());
+  }
+}
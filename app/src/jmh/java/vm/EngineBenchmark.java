@@ -0,0 +1,71 @@
+package vm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import closure.ClosureCompiler;
+import closure.Evaluator;
+import compiler.Chunk;
+import compiler.Compiler;
+import frontend.Parser;
+import frontend.Scripts;
+import frontend.ast.Program;
+import runtime.Interpreter;
+import runtime.RtVal;
+
+/**
+ * EngineBenchmark.java
+ *
+ * Runs the same parsed script on the tree-walking Interpreter, the VM and the
+ * closure compiler (both compiled ahead of time), each in a fresh global scope.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EngineBenchmark {
+
+  @Param({ "16384", "262144" })
+  int sourceBytes;
+
+  Program program;
+  Chunk chunk;
+  Evaluator closure;
+  final Interpreter interpreter = new Interpreter();
+  final VirtualMachine vm = new VirtualMachine();
+
+  @Setup
+  public void setup() {
+    program = new Parser().createAST(Scripts.generate(sourceBytes, false));
+    chunk = Compiler.compile(program);
+    closure = ClosureCompiler.compile(program);
+  }
+
+  @Benchmark
+  public RtVal tree() {
+    return interpreter.execute(program, runtime.Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal vm() {
+    return vm.run(chunk, runtime.Scope.createGlobalScope());
+  }
+
+  @Benchmark
+  public RtVal closure() {
+    return closure.evaluate(runtime.Scope.createGlobalScope());
+  }
+}
@@ -0,0 +1,335 @@
+package closure;
+
+/**
+ * ClosureCompiler.java
+ *
+ * Execution engine that converts each AST node into an Evaluator closure
+ * once, specialised on everything known before running: the node type, the
+ * operator, and whether the operands are number literals. Running the
+ * program is then a chain of direct calls, with no switching on NodeType or
+ * operator strings.
+ */
+
+
+import frontend.ast.ArrayNode;
+import frontend.ast.BinaryExpr;
+import frontend.ast.BooleanNode;
+import frontend.ast.ComparatorNode;
+import frontend.ast.IdentifierNode;
+import frontend.ast.IndexNode;
+import frontend.ast.LineTable;
+import frontend.ast.MemberNode;
+import frontend.ast.NodeType;
+import frontend.ast.NumberNode;
+import frontend.ast.ObjectNode;
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import frontend.ast.StatementNode;
+import frontend.ast.StringNode;
+import frontend.ast.VarAssignmentNode;
+import frontend.ast.VarDeclarationNode;
+import runtime.Arithmetic;
+import runtime.ExecutionEngine;
+import runtime.InlineCache;
+import runtime.Operators;
+import runtime.Output;
+import runtime.RtArray;
+import runtime.RtBool;
+import runtime.RtInt;
+import runtime.RtNull;
+import runtime.RtNumber;
+import runtime.RtObject;
+import runtime.RtVal;
+import runtime.Scope;
+import runtime.ScriptError;
+import runtime.Shape;
+
+public class ClosureCompiler implements ExecutionEngine {
+
+  private final Output out; // where compiled print statements write
+
+  public ClosureCompiler() {
+    this(Output.stdout());
+  }
+
+  public ClosureCompiler(Output out) {
+    this.out = out;
+  }
+
+  @Override
+  public RtVal execute(Program program, Scope scope) {
+    return compileProgram(program).evaluate(scope);
+  }
+
+  /**
+   * Compiles a whole program, printing to stdout
+   *
+   * @return Evaluator returning the value of the last statement
+   */
+  public static Evaluator compile(Program program) {
+    return new ClosureCompiler().compileProgram(program);
+  }
+
+  /**
+   * Entry point for this class, compiles a whole program
+   *
+   * @return Evaluator returning the value of the last statement
+   */
+  public Evaluator compileProgram(Program program) {
+    Evaluator[] statements = new Evaluator[program.body.size()];
+    int[] positions = new int[statements.length];
+    for (int i = 0; i < statements.length; i++) {
+      statements[i] = compile(program.body.get(i));
+      positions[i] = program.body.get(i).getPosition();
+    }
+    LineTable lines = program.lines;
+    return scope -> {
+      RtVal lastProcessed = RtNull.NULL;
+      for (int i = 0; i < statements.length; i++) {
+        try {
+          lastProcessed = statements[i].evaluate(scope);
+        } catch (RuntimeException e) {
+          throw ScriptError.at(e, positions[i], lines);
+        }
+      }
+      return lastProcessed;
+    };
+  }
+
+  private Evaluator compile(StatementNode node) {
+    switch (node.getType()) {
+      case NodeType.PROGRAM:
+        return compileProgram((Program) node);
+      case NodeType.VAR_DECLARATION: {
+        VarDeclarationNode n = (VarDeclarationNode) node;
+        String varname = n.varname;
+        boolean isConst = n.isConst;
+        Evaluator value = compile(n.value);
+        return scope -> {
+          scope.declareVar(varname, value.evaluate(scope), isConst);
+          return RtNull.NULL;
+        };
+      }
+      case NodeType.VAR_ASSIGNMENT:
+        return compileAssignment((VarAssignmentNode) node);
+      case NodeType.PRINT: {
+        Evaluator toPrint = compile(((PrintNode) node).toPrint);
+        return scope -> {
+          out.println(toPrint.evaluate(scope));
+          return RtNull.NULL;
+        };
+      }
+      case NodeType.OBJECT:
+        return compileObject((ObjectNode) node);
+      case NodeType.ARRAY:
+        return compileArray((ArrayNode) node);
+      case NodeType.INDEX:
+        return compileIndex((IndexNode) node);
+      case NodeType.BINARY_EXPR:
+        return compileBinaryExpr((BinaryExpr) node);
+      case NodeType.COMPARATOR_EXPR:
+        return compileComparatorExpr((ComparatorNode) node);
+      case NodeType.NUMBER: {
+        RtVal value = ((NumberNode) node).runtimeValue;
+        return scope -> value;
+      }
+      case NodeType.MEMBER: {
+        MemberNode n = (MemberNode) node;
+        Evaluator object = compile(n.left);
+        InlineCache cache = n.cache;
+        return scope -> cache.get((RtObject) object.evaluate(scope));
+      }
+      case NodeType.STRING: {
+        RtVal value = ((StringNode) node).runtimeValue;
+        return scope -> value;
+      }
+      case NodeType.BOOLEAN: {
+        RtVal value = ((BooleanNode) node).runtimeValue;
+        return scope -> value;
+      }
+      case NodeType.IDENTIFIER: {
+        String symbol = ((IdentifierNode) node).symbol;
+        return scope -> scope.getVar(symbol);
+      }
+
+      default:
+        throw new RuntimeException("Cannot compile statement type: " + node.getType());
+    }
+  }
+
+  private Evaluator compileAssignment(VarAssignmentNode node) {
+    Evaluator expr = compile(node.expr);
+    if (node.assignee.getType() == NodeType.IDENTIFIER) { /* literal variable */
+      String varname = ((IdentifierNode) node.assignee).symbol;
+      return scope -> scope.assignVar(varname, expr.evaluate(scope));
+    } else if (node.assignee.getType() == NodeType.MEMBER) {
+      MemberNode mNode = (MemberNode) node.assignee;
+      Evaluator object = compile(mNode.left);
+      InlineCache cache = mNode.cache;
+      return scope -> {
+        RtObject obj = (RtObject) object.evaluate(scope);
+        return cache.set(obj, expr.evaluate(scope));
+      };
+    } else if (node.assignee.getType() == NodeType.INDEX) {
+      IndexNode iNode = (IndexNode) node.assignee;
+      Evaluator target = compile(iNode.target);
+      Evaluator index = compile(iNode.index);
+      return scope -> {
+        RtVal t = target.evaluate(scope), i = index.evaluate(scope);
+        return Operators.assignIndex(t, i, expr.evaluate(scope));
+      };
+    }
+    // the interpreter only rejects this when the statement runs, so do the same
+    String msg = "Variable assignment has invalid assignee: " + node.assignee.toString();
+    return scope -> {
+      throw new RuntimeException(msg);
+    };
+  }
+
+  private Evaluator compileObject(ObjectNode node) {
+    int n = node.properties.size();
+    Evaluator[] values = new Evaluator[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = compile(node.properties.get(i).value);
+    }
+    Shape shape = node.literal.shape();
+    int[] indexes = node.literal.indexes();
+    return scope -> {
+      RtVal[] stored = new RtVal[shape.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        stored[indexes[i]] = values[i].evaluate(scope);
+      }
+      return new RtObject(shape, stored);
+    };
+  }
+
+  private Evaluator compileArray(ArrayNode node) {
+    int n = node.elements.size();
+    Evaluator[] elements = new Evaluator[n];
+    for (int i = 0; i < n; i++) {
+      elements[i] = compile(node.elements.get(i));
+    }
+    return scope -> {
+      RtVal[] values = new RtVal[n];
+      for (int i = 0; i < n; i++) {
+        values[i] = elements[i].evaluate(scope);
+      }
+      return RtArray.of(values);
+    };
+  }
+
+  private Evaluator compileIndex(IndexNode node) {
+    Evaluator target = compile(node.target);
+    // a literal integer index: no type check on it when running
+    if (node.index instanceof NumberNode literal && literal.runtimeValue instanceof RtInt i) {
+      int index = i.val;
+      return scope -> {
+        RtVal t = target.evaluate(scope);
+        return t instanceof RtArray a ? a.get(index) : Operators.index(t, i);
+      };
+    }
+    Evaluator index = compile(node.index);
+    return scope -> {
+      RtVal t = target.evaluate(scope), i = index.evaluate(scope);
+      return t instanceof RtArray a && i instanceof RtInt n ? a.get(n.val) : Operators.index(t, i);
+    };
+  }
+
+  private Evaluator compileBinaryExpr(BinaryExpr node) {
+    String op = node.operator;
+    // both operands are number literals: the result is known now
+    if (node.left.getType() == NodeType.NUMBER && node.right.getType() == NodeType.NUMBER) {
+      RtNumber l = ((NumberNode) node.left).runtimeValue;
+      RtNumber r = ((NumberNode) node.right).runtimeValue;
+      RtNumber value;
+      try {
+        value = Arithmetic.binary(l, r, op);
+      } catch (RuntimeException e) {
+        // e.g. a division by zero, which the interpreter only reports when the statement runs
+        return scope -> Arithmetic.binary(l, r, op);
+      }
+      return scope -> value;
+    }
+
+    Evaluator left = compile(node.left);
+    Evaluator right = compile(node.right);
+    return switch (op) {
+      case "+" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? Arithmetic.add(a.val, b.val)
+            : Operators.binary(lv, rv, "+");
+      };
+      case "-" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? Arithmetic.subtract(a.val, b.val)
+            : Operators.binary(lv, rv, "-");
+      };
+      case "*" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? Arithmetic.multiply(a.val, b.val)
+            : Operators.binary(lv, rv, "*");
+      };
+      case "/" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? Arithmetic.divide(a.val, b.val)
+            : Operators.binary(lv, rv, "/");
+      };
+      case "%" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? Arithmetic.modulo(a.val, b.val)
+            : Operators.binary(lv, rv, "%");
+      };
+      default -> throw new RuntimeException("Compiling BinaryExpr, unrecognised operator: " + op);
+    };
+  }
+
+  private Evaluator compileComparatorExpr(ComparatorNode node) {
+    String op = node.operator;
+    Evaluator left = compile(node.left);
+    Evaluator right = compile(node.right);
+    return switch (op) {
+      case "==" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? RtBool.of(a.val == b.val)
+            : Operators.compare(lv, rv, "==");
+      };
+      case "!=" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? RtBool.of(a.val != b.val)
+            : Operators.compare(lv, rv, "!=");
+      };
+      case ">" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? RtBool.of(a.val > b.val)
+            : Operators.compare(lv, rv, ">");
+      };
+      case "<" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? RtBool.of(a.val < b.val)
+            : Operators.compare(lv, rv, "<");
+      };
+      case ">=" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? RtBool.of(a.val >= b.val)
+            : Operators.compare(lv, rv, ">=");
+      };
+      case "<=" -> scope -> {
+        RtVal lv = left.evaluate(scope), rv = right.evaluate(scope);
+        return lv instanceof RtInt a && rv instanceof RtInt b
+            ? RtBool.of(a.val <= b.val)
+            : Operators.compare(lv, rv, "<=");
+      };
+      default -> throw new RuntimeException("Compiling comparison, unrecognised operator: " + op);
+    };
+  }
+}
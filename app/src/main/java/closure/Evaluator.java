@@ -0,0 +1,16 @@
+package closure;
+
+import runtime.RtVal;
+import runtime.Scope;
+
+/**
+ * Evaluator.java
+ *
+ * A pre-resolved, executable form of one AST node. Evaluators are built once
+ * by ClosureCompiler and capture their children directly, so nothing about
+ * the node (type, operator, names) is looked at again when they run.
+ */
+@FunctionalInterface
+public interface Evaluator {
+  RtVal evaluate(Scope scope);
+}
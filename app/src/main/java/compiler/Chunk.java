@@ -0,0 +1,62 @@
+package compiler;
+
+import java.util.Arrays;
+
+import frontend.ast.LineTable;
+import runtime.ScriptError;
+
+/**
+ * Chunk.java
+ *
+ * A compiled Program: a flat instruction array and the constants its
+ * instructions refer to. Chunks can be run any number of times; the only
+ * state they hold is the inline caches of their property accesses.
+ */
+public class Chunk {
+  public final int[] code;
+  public final Object[] constants; // RtVal literals, String names, object literal shapes, array lengths, inline caches
+  public final int maxStack; // deepest the operand stack gets while running the code
+  private final int[] statementEnds; // code index just after each top-level statement
+  private final int[] statementPositions; // source offset of each top-level statement
+  private final LineTable lines;
+
+  Chunk(int[] code, Object[] constants, int maxStack, int[] statementEnds, int[] statementPositions,
+      LineTable lines) {
+    this.code = code;
+    this.constants = constants;
+    this.maxStack = maxStack;
+    this.statementEnds = statementEnds;
+    this.statementPositions = statementPositions;
+    this.lines = lines;
+  }
+
+  /**
+   * @param pc index of the instruction that threw e
+   * @return e with the position of the statement containing the instruction
+   */
+  public RuntimeException locate(RuntimeException e, int pc) {
+    int i = Arrays.binarySearch(statementEnds, pc);
+    i = i >= 0 ? i + 1 : -i - 1; // first statement ending after pc
+    if (i >= statementEnds.length)
+      return e;
+    return ScriptError.at(e, statementPositions[i], lines);
+  }
+
+  /**
+   * @return a disassembly of the code, one instruction per line
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int pc = 0; pc < code.length; pc++) {
+      int op = code[pc];
+      sb.append(String.format("%04d %s", pc, OpCode.names[op]));
+      if (OpCode.hasOperand(op)) {
+        Object c = constants[code[++pc]];
+        sb.append(' ').append(c);
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,211 @@
+package compiler;
+
+/**
+ * Compiler.java
+ *
+ * Lowers a Program into a flat Chunk of bytecode for the VM. Every expression
+ * leaves exactly one value on the operand stack, and every statement is
+ * followed by RESULT, so the VM can return the value of the last statement
+ * just like Interpreter.evaluateProgram.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import frontend.ast.ArrayNode;
+import frontend.ast.BinaryExpr;
+import frontend.ast.BooleanNode;
+import frontend.ast.ComparatorNode;
+import frontend.ast.ExprNode;
+import frontend.ast.IdentifierNode;
+import frontend.ast.IndexNode;
+import frontend.ast.MemberNode;
+import frontend.ast.NodeType;
+import frontend.ast.NumberNode;
+import frontend.ast.ObjectNode;
+import frontend.ast.PropertyNode;
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import frontend.ast.StatementNode;
+import frontend.ast.StringNode;
+import frontend.ast.VarAssignmentNode;
+import frontend.ast.VarDeclarationNode;
+
+public class Compiler {
+  private int[] code = new int[256];
+  private int size = 0;
+  private final List<Object> constants = new ArrayList<>();
+  private final Map<Object, Integer> constantIndex = new HashMap<>(); // dedupes constants
+  private int depth = 0; // operand stack depth at the current instruction
+  private int maxDepth = 0;
+
+  /* keys for literal constants, so the literal "x" and the name x get separate slots */
+  private record NumberLiteral(String value) {
+  }
+
+  private record StringLiteral(String value) {
+  }
+
+  private record ArrayLength(int length) {
+  }
+
+  /**
+   * Entry point for this class, compiles a whole program
+   */
+  public static Chunk compile(Program program) {
+    Compiler c = new Compiler();
+    int[] ends = new int[program.body.size()];
+    int[] positions = new int[ends.length];
+    for (int i = 0; i < ends.length; i++) {
+      StatementNode s = program.body.get(i);
+      c.compileNode(s);
+      c.emit(OpCode.RESULT, -1);
+      ends[i] = c.size;
+      positions[i] = s.getPosition();
+    }
+    return new Chunk(Arrays.copyOf(c.code, c.size), c.constants.toArray(), c.maxDepth, ends, positions,
+        program.lines);
+  }
+
+  /**
+   * Appends an instruction
+   *
+   * @param stackEffect net change to the operand stack depth
+   */
+  private void emit(int op, int stackEffect) {
+    if (size == code.length)
+      code = Arrays.copyOf(code, size * 2);
+    code[size++] = op;
+    depth += stackEffect;
+    maxDepth = Math.max(maxDepth, depth);
+  }
+
+  /**
+   * Appends an instruction with an operand
+   */
+  private void emit(int op, int operand, int stackEffect) {
+    emit(op, stackEffect);
+    emit(operand, 0);
+  }
+
+  private int constant(Object key, Object value) {
+    Integer idx = constantIndex.get(key);
+    if (idx == null) {
+      idx = constants.size();
+      constants.add(value);
+      constantIndex.put(key, idx);
+    }
+    return idx;
+  }
+
+  private int name(String name) {
+    return constant(name, name);
+  }
+
+  private void compileNode(StatementNode node) {
+    switch (node.getType()) {
+      case NodeType.VAR_DECLARATION -> {
+        VarDeclarationNode n = (VarDeclarationNode) node;
+        compileNode(n.value);
+        emit(n.isConst ? OpCode.DECLARE_CONST : OpCode.DECLARE, name(n.varname), 0);
+      }
+      case NodeType.PRINT -> {
+        compileNode(((PrintNode) node).toPrint);
+        emit(OpCode.PRINT, 0);
+      }
+      case NodeType.VAR_ASSIGNMENT -> compileAssignment((VarAssignmentNode) node);
+      case NodeType.OBJECT -> {
+        ObjectNode n = (ObjectNode) node;
+        for (PropertyNode p : n.properties) {
+          compileNode(p.value);
+        }
+        emit(OpCode.NEW_OBJECT, constant(new Object(), n.literal), 1 - n.properties.size());
+      }
+      case NodeType.ARRAY -> {
+        ArrayNode n = (ArrayNode) node;
+        for (ExprNode e : n.elements) {
+          compileNode(e);
+        }
+        int length = n.elements.size();
+        emit(OpCode.NEW_ARRAY, constant(new ArrayLength(length), length), 1 - length);
+      }
+      case NodeType.INDEX -> {
+        IndexNode n = (IndexNode) node;
+        compileNode(n.target);
+        compileNode(n.index);
+        emit(OpCode.GET_INDEX, -1);
+      }
+      case NodeType.BINARY_EXPR -> {
+        BinaryExpr n = (BinaryExpr) node;
+        compileNode(n.left);
+        compileNode(n.right);
+        emit(switch (n.operator) {
+          case "+" -> OpCode.ADD;
+          case "-" -> OpCode.SUB;
+          case "*" -> OpCode.MUL;
+          case "/" -> OpCode.DIV;
+          case "%" -> OpCode.MOD;
+          default -> throw new RuntimeException("Compiling BinaryExpr, unrecognised operator: " + n.operator);
+        }, -1);
+      }
+      case NodeType.COMPARATOR_EXPR -> {
+        ComparatorNode n = (ComparatorNode) node;
+        compileNode(n.left);
+        compileNode(n.right);
+        emit(switch (n.operator) {
+          case "==" -> OpCode.EQ;
+          case "!=" -> OpCode.NE;
+          case ">" -> OpCode.GT;
+          case "<" -> OpCode.LT;
+          case ">=" -> OpCode.GE;
+          case "<=" -> OpCode.LE;
+          default -> throw new RuntimeException("Compiling comparison, unrecognised operator: " + n.operator);
+        }, -1);
+      }
+      case NodeType.NUMBER -> {
+        NumberNode n = (NumberNode) node;
+        emit(OpCode.CONST, constant(new NumberLiteral(n.runtimeValue.toString()), n.runtimeValue), 1);
+      }
+      case NodeType.STRING -> {
+        StringNode n = (StringNode) node;
+        emit(OpCode.CONST, constant(new StringLiteral(n.value), n.runtimeValue), 1);
+      }
+      case NodeType.BOOLEAN -> {
+        BooleanNode n = (BooleanNode) node;
+        emit(OpCode.CONST, constant(n.value, n.runtimeValue), 1);
+      }
+      case NodeType.IDENTIFIER -> emit(OpCode.LOAD, name(((IdentifierNode) node).symbol), 1);
+      case NodeType.MEMBER -> {
+        MemberNode n = (MemberNode) node;
+        compileNode(n.left);
+        emit(OpCode.GET_MEMBER, constant(new Object(), n.cache), 0); // one cache per site
+      }
+      default -> throw new RuntimeException("Cannot compile statement type: " + node.getType());
+    }
+  }
+
+  private void compileAssignment(VarAssignmentNode node) {
+    if (node.assignee.getType() == NodeType.IDENTIFIER) { /* literal variable */
+      compileNode(node.expr);
+      emit(OpCode.STORE, name(((IdentifierNode) node.assignee).symbol), 0);
+    } else if (node.assignee.getType() == NodeType.MEMBER) {
+      MemberNode mNode = (MemberNode) node.assignee;
+      compileNode(mNode.left); // object whose property to change
+      compileNode(node.expr);
+      emit(OpCode.SET_MEMBER, constant(new Object(), mNode.cache), -1);
+    } else if (node.assignee.getType() == NodeType.INDEX) {
+      IndexNode iNode = (IndexNode) node.assignee;
+      compileNode(iNode.target);
+      compileNode(iNode.index);
+      compileNode(node.expr);
+      emit(OpCode.SET_INDEX, -2);
+    } else {
+      // the interpreter only rejects this when the statement runs, so do the same
+      String msg = "Variable assignment has invalid assignee: " + node.assignee.toString();
+      emit(OpCode.FAIL, constant(new Object(), msg), 1);
+    }
+  }
+}
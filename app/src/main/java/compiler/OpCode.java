@@ -0,0 +1,79 @@
+package compiler;
+
+/**
+ * OpCode.java
+ *
+ * Instruction set of the stack-based VM. Each instruction is one int in
+ * Chunk.code, followed by its operand if it takes one. Operands are indexes
+ * into Chunk.constants.
+ */
+public final class OpCode {
+  // literals / variables
+  public static final int CONST = 0; // (idx) push constants[idx]
+  public static final int LOAD = 1; // (name) push value of variable
+  public static final int STORE = 2; // (name) assign top of stack to variable, leaving it on the stack
+  public static final int DECLARE = 3; // (name) pop value and declare variable, push null
+  public static final int DECLARE_CONST = 4; // (name) as DECLARE, but for a constant
+  // objects
+  public static final int NEW_OBJECT = 5; // (keys) pop one value per key, push new object
+  public static final int GET_MEMBER = 6; // (key) pop object, push object[key]
+  public static final int SET_MEMBER = 7; // (key) pop value and object, set object[key], push value
+  // operators, pop right and left then push result
+  public static final int ADD = 8;
+  public static final int SUB = 9;
+  public static final int MUL = 10;
+  public static final int DIV = 11;
+  public static final int MOD = 12;
+  public static final int EQ = 13;
+  public static final int NE = 14;
+  public static final int GT = 15;
+  public static final int LT = 16;
+  public static final int GE = 17;
+  public static final int LE = 18;
+  // statements
+  public static final int PRINT = 19; // pop value and print it, push null
+  public static final int RESULT = 20; // pop the value of a finished statement
+  public static final int FAIL = 21; // (message) throw a RuntimeException
+  // arrays
+  public static final int NEW_ARRAY = 22; // (length) pop length values, push new array
+  public static final int GET_INDEX = 23; // pop index and target, push target[index]
+  public static final int SET_INDEX = 24; // pop value, index and target, set target[index], push value
+
+  static final String[] names = {
+      "CONST", "LOAD", "STORE", "DECLARE", "DECLARE_CONST",
+      "NEW_OBJECT", "GET_MEMBER", "SET_MEMBER",
+      "ADD", "SUB", "MUL", "DIV", "MOD",
+      "EQ", "NE", "GT", "LT", "GE", "LE",
+      "PRINT", "RESULT", "FAIL",
+      "NEW_ARRAY", "GET_INDEX", "SET_INDEX" };
+
+  /**
+   * @return does the instruction take an operand?
+   */
+  public static boolean hasOperand(int op) {
+    return op <= SET_MEMBER || op == FAIL || op == NEW_ARRAY;
+  }
+
+  /**
+   * @return the symbol used for an operator instruction in source code
+   */
+  public static String symbol(int op) {
+    return switch (op) {
+      case ADD -> "+";
+      case SUB -> "-";
+      case MUL -> "*";
+      case DIV -> "/";
+      case MOD -> "%";
+      case EQ -> "==";
+      case NE -> "!=";
+      case GT -> ">";
+      case LT -> "<";
+      case GE -> ">=";
+      case LE -> "<=";
+      default -> throw new IllegalArgumentException("Not an operator instruction: " + names[op]);
+    };
+  }
+
+  private OpCode() {
+  }
+}
@@ -0,0 +1,192 @@
+package engine;
+
+/**
+ * BatchRunner.java
+ *
+ * Runs many scripts in one JVM, so they share one warm-up. Every script is
+ * read, parsed and executed on its own virtual thread, at most `parallelism`
+ * of them at a time, in its own global scope (fresh, or restored from a
+ * snapshot) and with its own engine whose
+ * Output captures everything the script prints. The results come back in the
+ * order the scripts were given, whatever order they finished in. Scripts with
+ * the same source are only parsed once.
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import frontend.AstSerializer;
+import frontend.ParseCache;
+import frontend.ast.Program;
+import optimizer.Optimizer;
+import runtime.ExecutionEngine;
+import runtime.Output;
+import runtime.Scope;
+
+public class BatchRunner {
+
+  private static final int PARSE_CACHE_ENTRIES = 256;
+
+  /**
+   * How one script went
+   *
+   * @param output everything the script printed, up to the error if it failed
+   * @param error  message of the error that stopped the script, null if it
+   *               ran to the end
+   * @param nanos  time taken to read, parse and run the script
+   */
+  public record Result(Path script, String output, String error, long nanos) {
+    public boolean ok() {
+      return error == null;
+    }
+  }
+
+  private final Function<Output, ExecutionEngine> engines;
+  private final Supplier<Scope> globals;
+  private final boolean optimize;
+  private final int parallelism;
+  private final ParseCache parses = new ParseCache(PARSE_CACHE_ENTRIES); // shared by the scripts' threads
+
+  /**
+   * @param engines     creates the engine for one script, printing to the
+   *                    given Output
+   * @param globals     creates the global scope for one script, called from
+   *                    the scripts' threads
+   * @param parallelism most scripts running at the same time
+   */
+  public BatchRunner(Function<Output, ExecutionEngine> engines, Supplier<Scope> globals, boolean optimize,
+      int parallelism) {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+    this.engines = engines;
+    this.globals = globals;
+    this.optimize = optimize;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * @param dirOrManifest a directory, searched recursively for .kat and .katc
+   *                      files, or a manifest: a text file with one script
+   *                      path per line, relative to the manifest's directory.
+   *                      Blank lines and lines starting with # are skipped.
+   * @return the scripts to run, in order
+   */
+  public static List<Path> findScripts(Path dirOrManifest) throws IOException {
+    if (Files.isDirectory(dirOrManifest)) {
+      try (Stream<Path> files = Files.walk(dirOrManifest)) {
+        return files.filter(p -> p.toString().endsWith(".kat") || p.toString().endsWith(".katc"))
+            .filter(Files::isRegularFile)
+            .sorted()
+            .toList();
+      }
+    }
+    Path dir = dirOrManifest.toAbsolutePath().getParent();
+    List<Path> scripts = new ArrayList<>();
+    for (String line : Files.readAllLines(dirOrManifest)) {
+      line = line.strip();
+      if (!line.isEmpty() && !line.startsWith("#"))
+        scripts.add(dir.resolve(line).normalize());
+    }
+    return scripts;
+  }
+
+  /**
+   * Runs every script, returning once all of them have finished
+   *
+   * @return one Result per script, in the same order
+   */
+  public List<Result> run(List<Path> scripts) throws InterruptedException {
+    Semaphore running = new Semaphore(parallelism);
+    List<Future<Result>> futures = new ArrayList<>(scripts.size());
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (Path script : scripts) {
+        futures.add(executor.submit(() -> {
+          running.acquire();
+          try {
+            return runScript(script);
+          } finally {
+            running.release();
+          }
+        }));
+      }
+    } // waits for every task
+
+    List<Result> results = new ArrayList<>(futures.size());
+    for (Future<Result> f : futures) {
+      try {
+        results.add(f.get());
+      } catch (ExecutionException e) { // runScript catches what a script can throw
+        throw new IllegalStateException("Batch task failed", e.getCause());
+      }
+    }
+    return results;
+  }
+
+  private Result runScript(Path script) {
+    StringWriter captured = new StringWriter();
+    Output out = new Output(captured);
+    long start = System.nanoTime();
+    String error = null;
+    try {
+      Scope scope = globals.get();
+      Program program = load(script);
+      if (optimize)
+        program = Optimizer.optimize(program, scope);
+      engines.apply(out).execute(program, scope);
+    } catch (NoSuchFileException e) {
+      error = "File " + script + " not found.";
+    } catch (IOException e) {
+      error = "Could not read " + script + ": " + e.getMessage();
+    } catch (RuntimeException e) {
+      error = e.getMessage() != null ? e.getMessage() : e.toString(); // a failure even without a message
+    } catch (StackOverflowError e) {
+      error = "Stack overflow, the script is nested too deeply";
+    } finally {
+      out.flush();
+    }
+    return new Result(script, captured.toString(), error, System.nanoTime() - start);
+  }
+
+  private Program load(Path script) throws IOException {
+    if (script.toString().endsWith(".katc"))
+      return AstSerializer.read(ByteBuffer.wrap(Files.readAllBytes(script)));
+    return parses.createAST(Files.readString(script));
+  }
+
+  /**
+   * Prints each script's output under a header with its outcome and time,
+   * followed by a summary line
+   *
+   * @param wallNanos time the whole batch took
+   */
+  public static void report(List<Result> results, long wallNanos, PrintStream out) {
+    long totalNanos = 0;
+    int failed = 0;
+    for (Result r : results) {
+      out.printf("==== %s: %s, %.3f ms ====%n", r.script(), r.ok() ? "ok" : "FAILED", r.nanos() / 1e6);
+      out.print(r.output());
+      if (!r.ok())
+        out.println("error: " + r.error());
+      totalNanos += r.nanos();
+      if (!r.ok())
+        failed++;
+    }
+    out.printf("==== Batch: %d scripts, %d ok, %d failed, %.3f ms wall, %.3f ms in scripts ====%n",
+        results.size(), results.size() - failed, failed, wallNanos / 1e6, totalNanos / 1e6);
+  }
+}
@@ -0,0 +1,30 @@
+package engine;
+
+/**
+ * CompiledScript.java
+ *
+ * A source program compiled by a KitkatEngine: parsed, optimised, resolved
+ * against the engine's global scope and, for the VM backend, compiled to a
+ * Chunk. Immutable, so it can be executed any number of times from any number
+ * of threads at once.
+ */
+
+import compiler.Chunk;
+import frontend.ast.Program;
+
+public final class CompiledScript {
+
+  final KitkatEngine engine;
+  final Program program;
+  final Chunk chunk; // null unless the engine runs on the VM
+
+  CompiledScript(KitkatEngine engine, Program program, Chunk chunk) {
+    this.engine = engine;
+    this.program = program;
+    this.chunk = chunk;
+  }
+
+  public Program getProgram() {
+    return program;
+  }
+}
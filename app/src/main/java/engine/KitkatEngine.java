@@ -0,0 +1,124 @@
+package engine;
+
+/**
+ * KitkatEngine.java
+ *
+ * Entry point for running kitkat inside another program. Compile a source
+ * once into a CompiledScript, then execute it as often as needed, from as
+ * many threads as needed. Each execution gets a new Scope whose parent is the
+ * engine's global scope, and prints to the Output it is given.
+ *
+ * The global scope is frozen when the engine is created, so executions can
+ * read its variables and objects but not change them, and it is safe to share
+ * between threads. Besides it, an engine only holds a ParseCache, which is
+ * thread-safe, so sources compiled again are not parsed again and one engine
+ * can serve every thread.
+ */
+
+import compiler.Compiler;
+import frontend.ParseCache;
+import frontend.Parser;
+import frontend.ast.Program;
+import optimizer.Optimizer;
+import runtime.Interpreter;
+import runtime.Output;
+import runtime.Resolver;
+import runtime.RtVal;
+import runtime.Scope;
+import vm.VirtualMachine;
+
+public final class KitkatEngine {
+
+  /**
+   * How compiled scripts are executed. The closure compiler is not offered:
+   * its closures are bound to one Output when they are built.
+   */
+  public enum Backend {
+    TREE, VM
+  }
+
+  private static final Parser parser = new Parser(); // keeps no state, safe to share
+  private static final int PARSE_CACHE_ENTRIES = 256;
+
+  private final Scope globals;
+  private final Backend backend;
+  private final boolean optimize;
+  private final ParseCache parses = new ParseCache(PARSE_CACHE_ENTRIES); // sources compiled again skip the parser
+
+  /**
+   * An engine with only the built-in globals, running optimised scripts on the
+   * tree interpreter
+   */
+  public KitkatEngine() {
+    this(Scope.createGlobalScope(), Backend.TREE, true);
+  }
+
+  /**
+   * @param globals  variables every execution can read, frozen by this
+   *                 constructor, e.g. from createGlobals
+   * @param optimize whether to run the optimizer on compiled scripts
+   */
+  public KitkatEngine(Scope globals, Backend backend, boolean optimize) {
+    this.globals = globals.freeze();
+    this.backend = backend;
+    this.optimize = optimize;
+  }
+
+  /**
+   * Runs source in a new global scope, so its declarations can be shared by an
+   * engine. Anything it prints goes to out.
+   *
+   * @return the scope, not frozen yet
+   */
+  public static Scope createGlobals(String source, Output out) {
+    Scope scope = Scope.createGlobalScope();
+    try {
+      new Interpreter(out).execute(parser.createAST(source), scope);
+    } finally {
+      out.flush();
+    }
+    return scope;
+  }
+
+  /**
+   * Parses source and prepares it to run in this engine's executions
+   */
+  public CompiledScript compile(String source) {
+    Program program = parses.createAST(source);
+    // every execution starts from an empty scope like this one, so what the
+    // optimizer and resolver work out holds for all of them
+    Scope layout = new Scope(globals);
+    if (optimize)
+      program = Optimizer.optimize(program, layout);
+    if (backend == Backend.VM) // the VM looks variables up by name
+      return new CompiledScript(this, program, Compiler.compile(program));
+    return new CompiledScript(this, Resolver.resolve(program, layout), null);
+  }
+
+  /**
+   * Runs the script in a new scope, printing to out, which is flushed when the
+   * script ends. out must not be used by another thread meanwhile.
+   *
+   * @return the value of the script's last statement
+   */
+  public RtVal execute(CompiledScript script, Output out) {
+    if (script.engine != this)
+      throw new IllegalArgumentException("Script was compiled by a different engine.");
+    Scope scope = new Scope(globals);
+    try {
+      return switch (backend) {
+        case TREE -> new Interpreter(out).evaluateProgram(script.program, scope);
+        case VM -> new VirtualMachine(out).run(script.chunk, scope);
+      };
+    } finally {
+      out.flush();
+    }
+  }
+
+  /**
+   * Compiles and runs source once
+   */
+  public RtVal execute(String source, Output out) {
+    return execute(compile(source), out);
+  }
+}
@@ -0,0 +1,336 @@
+package frontend;
+
+/**
+ * AstSerializer.java
+ *
+ * Reads and writes the compact binary form of a Program (.katc files), so
+ * large scripts can be compiled once and then loaded without lexing or
+ * parsing.
+ *
+ * Layout:
+ * "KATC" magic, u16 version
+ * constant pool: varint count, then each string as varint length + UTF-8 bytes
+ * body: varint statement count, then each node in pre-order as a u8 tag
+ * (NodeType ordinal), varint source offset + 1 (0 if unknown), then its
+ * fields. Strings are pool indexes.
+ * Numbers are a u8 kind (int, long, big integer, double) then the value, big
+ * integers as varint length + two's-complement bytes.
+ * line table: varint line count (0 if the program has none), then the offset
+ * each line after the first starts at, as a varint delta from the line before.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import frontend.ast.ArrayNode;
+import frontend.ast.BinaryExpr;
+import frontend.ast.BooleanNode;
+import frontend.ast.ComparatorNode;
+import frontend.ast.ExprNode;
+import frontend.ast.IdentifierNode;
+import frontend.ast.IndexNode;
+import frontend.ast.LineTable;
+import frontend.ast.MemberNode;
+import frontend.ast.NodeType;
+import frontend.ast.NumberNode;
+import frontend.ast.ObjectNode;
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import frontend.ast.PropertyNode;
+import frontend.ast.StatementNode;
+import frontend.ast.StringNode;
+import frontend.ast.VarAssignmentNode;
+import frontend.ast.VarDeclarationNode;
+import runtime.RtDouble;
+import runtime.RtInt;
+import runtime.RtLong;
+import runtime.RtNumber;
+
+public class AstSerializer {
+
+  private static final byte[] MAGIC = { 'K', 'A', 'T', 'C' };
+  // bump whenever the layout or NodeType changes
+  private static final int VERSION = 5;
+
+  private static final NodeType[] nodeTypes = NodeType.values();
+
+  private static final int NUMBER_INT = 0;
+  private static final int NUMBER_LONG = 1;
+  private static final int NUMBER_BIG = 2;
+  private static final int NUMBER_DOUBLE = 3;
+
+  /**
+   * Writes the Program in .katc form.
+   */
+  public static void write(Program program, OutputStream out) throws IOException {
+    Writer w = new Writer();
+    w.writeList(program.body);
+    w.writeLines(program.lines);
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.write(MAGIC);
+    data.writeShort(VERSION);
+    writeVarInt(data, w.pool.size());
+    for (String s : w.pool.keySet()) {
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(data, utf8.length);
+      data.write(utf8);
+    }
+    w.tree.writeTo(data);
+    data.flush();
+  }
+
+  /**
+   * Reads a Program from the bytes of a .katc file.
+   */
+  public static Program read(ByteBuffer in) {
+    try {
+      for (byte b : MAGIC) {
+        if (in.get() != b)
+          throw new RuntimeException("Not a compiled kitkat file (bad magic number).");
+      }
+      int version = in.getShort();
+      if (version != VERSION) {
+        throw new RuntimeException(
+            "Compiled file has version " + version + ", expected " + VERSION + ". Recompile the source.");
+      }
+      String[] pool = new String[readVarInt(in)];
+      for (int i = 0; i < pool.length; i++) {
+        int len = readVarInt(in);
+        byte[] utf8 = new byte[len];
+        in.get(utf8);
+        pool[i] = new String(utf8, StandardCharsets.UTF_8);
+      }
+      Reader r = new Reader(in, pool);
+      List<StatementNode> body = r.readList();
+      return new Program(body, r.readLines());
+    } catch (BufferUnderflowException e) {
+      throw new RuntimeException("Compiled file is truncated.");
+    }
+  }
+
+  /**
+   * Serialises the tree into a buffer, collecting strings into the pool as it
+   * goes, since the pool has to be written first.
+   */
+  private static class Writer {
+    final Map<String, Integer> pool = new LinkedHashMap<>();
+    final ByteArrayOutputStream tree = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(tree);
+
+    void writeString(String s) throws IOException {
+      Integer idx = pool.get(s);
+      if (idx == null) {
+        idx = pool.size();
+        pool.put(s, idx);
+      }
+      writeVarInt(out, idx);
+    }
+
+    void writeNumber(RtNumber n) throws IOException {
+      if (n instanceof RtInt i) {
+        out.writeByte(NUMBER_INT);
+        out.writeInt(i.val);
+      } else if (n instanceof RtLong l) {
+        out.writeByte(NUMBER_LONG);
+        out.writeLong(l.val);
+      } else if (n instanceof RtDouble d) {
+        out.writeByte(NUMBER_DOUBLE);
+        out.writeDouble(d.val);
+      } else {
+        byte[] bytes = n.bigValue().toByteArray();
+        out.writeByte(NUMBER_BIG);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    void writeLines(LineTable lines) throws IOException {
+      if (lines == null) {
+        writeVarInt(out, 0);
+        return;
+      }
+      writeVarInt(out, lines.size());
+      for (int line = 2; line <= lines.size(); line++)
+        writeVarInt(out, lines.lineStart(line) - lines.lineStart(line - 1));
+    }
+
+    void writeList(List<? extends StatementNode> nodes) throws IOException {
+      writeVarInt(out, nodes.size());
+      for (StatementNode n : nodes)
+        writeNode(n);
+    }
+
+    void writeNode(StatementNode node) throws IOException {
+      out.writeByte(node.getType().ordinal());
+      writeVarInt(out, node.getPosition() + 1);
+      switch (node.getType()) {
+        case NodeType.PROGRAM -> writeList(((Program) node).body);
+        case NodeType.VAR_DECLARATION -> {
+          VarDeclarationNode n = (VarDeclarationNode) node;
+          writeString(n.varname);
+          out.writeBoolean(n.isConst);
+          writeNode(n.value);
+        }
+        case NodeType.PRINT -> writeNode(((PrintNode) node).toPrint);
+        case NodeType.VAR_ASSIGNMENT -> {
+          VarAssignmentNode n = (VarAssignmentNode) node;
+          writeNode(n.assignee);
+          writeNode(n.expr);
+        }
+        case NodeType.OBJECT -> writeList(((ObjectNode) node).properties);
+        case NodeType.PROPERTY -> {
+          PropertyNode n = (PropertyNode) node;
+          writeString(n.key);
+          writeNode(n.value);
+        }
+        case NodeType.NUMBER -> writeNumber(((NumberNode) node).runtimeValue);
+        case NodeType.BINARY_EXPR -> {
+          BinaryExpr n = (BinaryExpr) node;
+          writeString(n.operator);
+          writeNode(n.left);
+          writeNode(n.right);
+        }
+        case NodeType.COMPARATOR_EXPR -> {
+          ComparatorNode n = (ComparatorNode) node;
+          writeString(n.operator);
+          writeNode(n.left);
+          writeNode(n.right);
+        }
+        case NodeType.IDENTIFIER -> writeString(((IdentifierNode) node).symbol);
+        case NodeType.MEMBER -> {
+          MemberNode n = (MemberNode) node;
+          writeNode(n.left);
+          writeString(n.right.symbol);
+        }
+        case NodeType.STRING -> writeString(((StringNode) node).value);
+        case NodeType.BOOLEAN -> out.writeBoolean(((BooleanNode) node).value);
+        case NodeType.ARRAY -> writeList(((ArrayNode) node).elements);
+        case NodeType.INDEX -> {
+          IndexNode n = (IndexNode) node;
+          writeNode(n.target);
+          writeNode(n.index);
+        }
+        default -> throw new RuntimeException("Cannot serialise node type: " + node.getType());
+      }
+    }
+  }
+
+  private static class Reader {
+    final ByteBuffer in;
+    final String[] pool;
+
+    Reader(ByteBuffer in, String[] pool) {
+      this.in = in;
+      this.pool = pool;
+    }
+
+    String readString() {
+      return pool[readVarInt(in)];
+    }
+
+    <T extends StatementNode> List<T> readList() {
+      int n = readVarInt(in);
+      List<T> nodes = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        @SuppressWarnings("unchecked")
+        T node = (T) readNode();
+        nodes.add(node);
+      }
+      return nodes;
+    }
+
+    RtNumber readNumber() {
+      int kind = in.get();
+      return switch (kind) {
+        case NUMBER_INT -> RtNumber.of(in.getInt());
+        case NUMBER_LONG -> RtNumber.of(in.getLong());
+        case NUMBER_DOUBLE -> RtNumber.of(in.getDouble());
+        case NUMBER_BIG -> {
+          byte[] bytes = new byte[readVarInt(in)];
+          in.get(bytes);
+          yield RtNumber.of(new BigInteger(bytes));
+        }
+        default -> throw new RuntimeException("Compiled file is corrupt, unknown number kind: " + kind);
+      };
+    }
+
+    LineTable readLines() {
+      int n = readVarInt(in);
+      if (n == 0)
+        return null;
+      int[] starts = new int[n];
+      for (int i = 1; i < n; i++)
+        starts[i] = starts[i - 1] + readVarInt(in);
+      return new LineTable(starts, n);
+    }
+
+    ExprNode readExpr() {
+      return (ExprNode) readNode();
+    }
+
+    StatementNode readNode() {
+      int tag = in.get();
+      if (tag < 0 || tag >= nodeTypes.length)
+        throw new RuntimeException("Compiled file is corrupt, unknown node tag: " + tag);
+      int position = readVarInt(in) - 1;
+      return switch (nodeTypes[tag]) {
+        case NodeType.PROGRAM -> new Program(readList());
+        case NodeType.VAR_DECLARATION -> {
+          String varname = readString();
+          boolean isConst = in.get() != 0;
+          yield new VarDeclarationNode(varname, readExpr(), isConst, position);
+        }
+        case NodeType.PRINT -> new PrintNode(readExpr(), position);
+        case NodeType.VAR_ASSIGNMENT -> new VarAssignmentNode(readExpr(), readExpr(), position);
+        case NodeType.OBJECT -> new ObjectNode(readList(), position);
+        case NodeType.PROPERTY -> new PropertyNode(readString(), readExpr(), position);
+        case NodeType.NUMBER -> new NumberNode(readNumber(), position);
+        case NodeType.BINARY_EXPR -> {
+          String op = readString();
+          yield new BinaryExpr(readExpr(), readExpr(), op, position);
+        }
+        case NodeType.COMPARATOR_EXPR -> {
+          String op = readString();
+          yield new ComparatorNode(readExpr(), readExpr(), op, position);
+        }
+        case NodeType.IDENTIFIER -> new IdentifierNode(readString(), position);
+        case NodeType.MEMBER -> new MemberNode(readExpr(), new IdentifierNode(readString(), -1), position);
+        case NodeType.STRING -> new StringNode(readString(), position);
+        case NodeType.BOOLEAN -> new BooleanNode(in.get() != 0, position);
+        case NodeType.ARRAY -> new ArrayNode(readList(), position);
+        case NodeType.INDEX -> new IndexNode(readExpr(), readExpr(), position);
+        default -> throw new RuntimeException("Compiled file is corrupt, unexpected node: " + nodeTypes[tag]);
+      };
+    }
+  }
+
+  private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+    while ((v & ~0x7F) != 0) {
+      out.writeByte((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    out.writeByte(v);
+  }
+
+  private static int readVarInt(ByteBuffer in) {
+    int v = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = in.get();
+      v |= (b & 0x7F) << shift;
+      if (b >= 0)
+        return v;
+    }
+    throw new RuntimeException("Compiled file is corrupt, malformed varint.");
+  }
+}
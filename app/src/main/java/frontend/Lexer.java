@@ -1,16 +1,95 @@
 package frontend;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Map;
 import static java.util.Map.entry;
 
+import frontend.ast.LineTable;
+
+/**
+ * Lexer.java
+ *
+ * Scans the source code with a single cursor, producing one Token at a time.
+ * Source is pulled from a Reader into a fixed-size window which is refilled as
+ * the cursor reaches its end, so memory use does not grow with the size of the
+ * source. Multi-character tokens are sliced straight out of the window by
+ * offset, so no work is done per character beyond reading it.
+ *
+ * Positions are source offsets. The lexer only remembers where the last token
+ * started and where each line starts (found as the window is filled), so
+ * tracking them costs no objects per token.
+ */
 class Lexer {
 
-  private static final Map<String, TokenType> reservedKeywords = Map.ofEntries(
-      entry("let", TokenType.VAR_DECLARATION),
-      entry("const", TokenType.VAR_DECLARATION),
-      entry("print", TokenType.PRINT));
+  private static final int WINDOW_SIZE = 8192;
+
+  private static final Map<String, Token> reservedKeywords = Map.ofEntries(
+      entry("let", new Token("let", TokenType.VAR_DECLARATION)),
+      entry("const", new Token("const", TokenType.VAR_DECLARATION)),
+      entry("print", new Token("print", TokenType.PRINT)));
+
+  /* shared tokens for single-character punctuation and operators, indexed by char */
+  private static final Token[] punctuation = new Token[128];
+  static {
+    for (Token t : new Token[] {
+        new Token(";", TokenType.SEMICOLON), new Token(":", TokenType.COLON),
+        new Token(",", TokenType.COMMA), new Token(".", TokenType.DOT),
+        new Token("(", TokenType.OPEN_PAREN), new Token(")", TokenType.CLOSE_PAREN),
+        new Token("[", TokenType.OPEN_BRACKET), new Token("]", TokenType.CLOSE_BRACKET),
+        new Token("{", TokenType.OPEN_BRACE), new Token("}", TokenType.CLOSE_BRACE),
+        new Token("=", TokenType.EQUALS),
+        new Token("+", TokenType.PLUS), new Token("-", TokenType.MINUS),
+        new Token("*", TokenType.STAR), new Token("/", TokenType.SLASH), new Token("%", TokenType.PERCENT),
+        new Token(">", TokenType.COMPARATOR), new Token("<", TokenType.COMPARATOR) }) {
+      punctuation[t.value.charAt(0)] = t;
+    }
+  }
+
+  private static final Token EQ = new Token("==", TokenType.COMPARATOR);
+  private static final Token NE = new Token("!=", TokenType.COMPARATOR);
+  private static final Token GE = new Token(">=", TokenType.COMPARATOR);
+  private static final Token LE = new Token("<=", TokenType.COMPARATOR);
+  private static final Token EOF = new Token("EOF", TokenType.EOF);
+
+  private final Reader in;
+  private char[] buf = new char[WINDOW_SIZE];
+  private int limit = 0; // end of the valid characters in buf
+  private int pos = 0; // cursor
+  private int start = 0; // start of the token being scanned, kept when refilling
+  private boolean exhausted = false;
+  private int base = 0; // source offset of buf[0]
+  private int tokenStart = 0; // source offset of the last token returned by next()
+  private final LineTable lines;
+  private final boolean countLines; // false if lines was complete when given
+
+  Lexer(Reader in) {
+    this.in = in;
+    this.lines = new LineTable();
+    this.countLines = true;
+  }
+
+  /**
+   * Lexes a part of a larger source, so token positions are offsets in the
+   * whole source.
+   *
+   * @param base  source offset of the first character in reads from
+   * @param lines line starts of the whole source, complete already
+   */
+  Lexer(Reader in, int base, LineTable lines) {
+    this.in = in;
+    this.base = base;
+    this.lines = lines;
+    this.countLines = false;
+  }
+
+  Lexer(String src) {
+    this(new StringReader(src));
+  }
 
   /**
    * @return can c be ignored?
@@ -26,108 +105,196 @@ class Lexer {
     return new Token(value, type);
   }
 
+  private static boolean isValidIdentifierChar(char c) {
+    return Character.isLetter(c) || c == '_';
+  }
+
   /**
-   * method overload: create a Token(String, TokenType) from a character
+   * Makes sure the character under the cursor is in the window, reading more of
+   * the source if required.
+   *
+   * @return false if the end of the source has been reached
    */
-  private static Token token(char value, TokenType type) {
-    return new Token("" + value, type);
+  private boolean ensure() {
+    return pos < limit || fill();
   }
 
-  private static boolean isValidIdentifierChar(char c) {
-    return Character.isLetter(c) || c == '_';
+  /**
+   * Slides the current token to the front of the window (growing it if the token
+   * fills the whole window) and reads more source after it.
+   */
+  private boolean fill() {
+    if (exhausted)
+      return false;
+    int kept = limit - start;
+    if (kept == buf.length) {
+      char[] bigger = new char[buf.length * 2];
+      System.arraycopy(buf, start, bigger, 0, kept);
+      buf = bigger;
+    } else if (start > 0) {
+      System.arraycopy(buf, start, buf, 0, kept);
+    }
+    pos -= start;
+    base += start;
+    limit = kept;
+    start = 0;
+    try {
+      int n = in.read(buf, limit, buf.length - limit);
+      if (n <= 0) {
+        exhausted = true;
+        in.close();
+        return false;
+      }
+      if (countLines) {
+        for (int i = limit; i < limit + n; i++) {
+          if (buf[i] == '\n')
+            lines.addLine(base + i + 1);
+        }
+      }
+      limit += n;
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read source code.", e);
+    }
   }
 
-  static Deque<Token> tokenise(String sourceCode) {
-    Deque<Token> tokens = new ArrayDeque<>();
-    char[] src = sourceCode.toCharArray();
-    Deque<Character> q = new ArrayDeque<>();
-    for (char c : src)
-      q.add(c);
-
-    char c;
-    while (!q.isEmpty()) {
-      c = q.poll();
+  /**
+   * @return the character under the cursor, or '\0' if at the end of the source
+   */
+  private char peek() {
+    return ensure() ? buf[pos] : '\0';
+  }
+
+  /**
+   * @return the character after the one under the cursor, or '\0' if there is
+   *         none
+   */
+  private char peekNext() {
+    while (pos + 1 >= limit) {
+      if (!fill())
+        return '\0';
+    }
+    return buf[pos + 1];
+  }
+
+  /**
+   * @return the source between the token start (inclusive) and the cursor
+   *         (exclusive)
+   */
+  private String slice() {
+    return new String(buf, start, pos - start);
+  }
+
+  /**
+   * @return the source offset of the first character of the last token
+   *         returned by next()
+   */
+  int tokenStart() {
+    return tokenStart;
+  }
+
+  /**
+   * @return the start of every line read so far, which is complete once next()
+   *         has returned EOF
+   */
+  LineTable lines() {
+    return lines;
+  }
+
+  /**
+   * Scans the next token from the source, skipping whitespace and comments.
+   *
+   * @return the next token, or an EOF token once the source is exhausted
+   */
+  Token next() {
+    Token t = scan();
+    tokenStart = base + (t == EOF ? pos : start);
+    return t;
+  }
+
+  private Token scan() {
+    while (ensure()) {
+      start = pos;
+      char c = buf[pos++];
       switch (c) {
-        // separators
-        case ';' -> tokens.add(token(c, TokenType.SEMICOLON));
-        case ':' -> tokens.add(token(c, TokenType.COLON));
-        case ',' -> tokens.add(token(c, TokenType.COMMA));
-        case '.' -> tokens.add(token(c, TokenType.DOT));
-        // operators / groupings
-        case '(' -> tokens.add(token(c, TokenType.OPEN_PAREN));
-        case ')' -> tokens.add(token(c, TokenType.CLOSE_PAREN));
-        case '[' -> tokens.add(token(c, TokenType.OPEN_BRACKET));
-        case ']' -> tokens.add(token(c, TokenType.CLOSE_BRACKET));
-        case '{' -> tokens.add(token(c, TokenType.OPEN_BRACE));
-        case '}' -> tokens.add(token(c, TokenType.CLOSE_BRACE));
+        // separators, operators / groupings
+        case ';', ':', ',', '.', '(', ')', '[', ']', '{', '}', '+', '-', '*', '/', '%' -> {
+          return punctuation[c];
+        }
         case '=' -> {
-          if (q.peek() == '=') { // == (comparison)
-            q.poll();
-            tokens.add(token("==", TokenType.COMPARATOR));
-          } else // = (assignment)
-            tokens.add(token(c, TokenType.EQUALS));
+          if (peek() == '=') { // == (comparison)
+            pos++;
+            return EQ;
+          }
+          return punctuation[c]; // = (assignment)
         }
-        case '+', '-', '*', '/', '%' -> tokens.add(token(c, TokenType.BINARY_OPERATOR));
         // comments, ignore until EOL
         case '#' -> {
-          while (!q.isEmpty() && q.peek() != '\n')
-            q.poll();
+          start = pos; // nothing before the cursor needs keeping
+          while (ensure() && buf[pos] != '\n')
+            start = ++pos;
+        }
+        // string literal
+        case '"' -> {
+          while (ensure() && buf[pos] != '"')
+            pos++;
+          if (pos >= limit)
+            throw new RuntimeException("Open quote never closed (" + lines.describe(base + start) + ").");
+          String s = new String(buf, start + 1, pos - start - 1);
+          pos++; // eat closing quotation mark
+          return token(s, TokenType.STRING);
         }
         default -> {
 
           /* multi-character tokens */
 
-          // string literal
-          if (c == '"') {
-            String s = "";
-            while (!q.isEmpty() && q.peek() != '"') {
-              s += q.poll();
+          // number, with an optional fractional part
+          if (Character.isDigit(c)) {
+            while (ensure() && Character.isDigit(buf[pos]))
+              pos++;
+            if (peek() == '.' && Character.isDigit(peekNext())) {
+              pos++;
+              while (ensure() && Character.isDigit(buf[pos]))
+                pos++;
             }
-            if (q.isEmpty())
-              throw new RuntimeException("Open quote never closed.");
-            q.poll(); // eat closing quotation mark
-            tokens.add(token(s, TokenType.STRING));
-          }
-
-          // number
-          else if (Character.isDigit(c)) {
-            String num = "" + c;
-            while (!q.isEmpty() && Character.isDigit(q.peek())) {
-              num += q.poll();
-            }
-            tokens.add(token(num, TokenType.NUMBER));
+            return token(slice(), TokenType.NUMBER);
           }
 
           // identifier
-          else if (isValidIdentifierChar(c)) {
-            String word = "" + c;
-            while (!q.isEmpty() && isValidIdentifierChar(q.peek())) {
-              word += q.poll();
-            }
-
-            if (reservedKeywords.containsKey(word)) {
-              tokens.add(token(word, reservedKeywords.get(word)));
-            } else {
-              tokens.add(token(word, TokenType.IDENTIFIER));
-            }
+          if (isValidIdentifierChar(c)) {
+            while (ensure() && isValidIdentifierChar(buf[pos]))
+              pos++;
+            String word = slice();
+            Token keyword = reservedKeywords.get(word);
+            return keyword != null ? keyword : token(word, TokenType.IDENTIFIER);
           }
 
           // comparators --> != | > | < | >= | <=
-          else if ((c == '!' && q.peek() == '=') || c == '>' || c == '<') {
-            String op = "" + c;
-            if (q.peek() == '=')
-              op += q.poll();
-            tokens.add(token(op, TokenType.COMPARATOR));
+          if ((c == '!' && peek() == '=') || c == '>' || c == '<') {
+            if (peek() != '=')
+              return punctuation[c];
+            pos++;
+            return c == '!' ? NE : c == '>' ? GE : LE;
           }
 
-          else if (!isSkippable(c)) {
+          if (!isSkippable(c)) {
             System.out.println("unrecognised character found: " + c);
           }
         }
       }
     }
 
-    tokens.add(token("EOF", TokenType.EOF));
+    return EOF;
+  }
+
+  static Deque<Token> tokenise(String sourceCode) {
+    Deque<Token> tokens = new ArrayDeque<>();
+    Lexer lexer = new Lexer(sourceCode);
+    Token t;
+    do {
+      t = lexer.next();
+      tokens.add(t);
+    } while (t.type != TokenType.EOF);
     return tokens;
   }
 }
@@ -0,0 +1,107 @@
+package frontend;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedSourceReader.java
+ *
+ * Reads a UTF-8 source file through a memory mapping, decoding it a window at
+ * a time straight into the lexer's buffer as it asks for more, so the file is
+ * never copied onto the heap as a whole.
+ *
+ * Runs of ASCII, which is nearly all source code, are widened byte by byte
+ * without the CharsetDecoder: on a mapped buffer, which has no backing array,
+ * the decoder takes its slow path for every byte. Only the rest goes through
+ * the decoder.
+ */
+public class MappedSourceReader extends Reader {
+
+  private static final int DECODE_RUN = 64; // most chars decoded before trying ASCII again
+
+  private final ByteBuffer bytes;
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+  private boolean flushed = false;
+  private final CharBuffer pair = CharBuffer.allocate(2); // for a surrogate pair that didn't fit
+
+  public MappedSourceReader(Path path) throws IOException {
+    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (ch.size() > Integer.MAX_VALUE)
+        throw new IOException("Source file is too large to map, " + ch.size() + " bytes.");
+      this.bytes = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+    }
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0)
+      return 0;
+    if (pair.position() > 0) { // low surrogate left over from the last read
+      cbuf[off] = pair.get(1);
+      pair.clear();
+      return 1;
+    }
+    if (flushed)
+      return -1;
+    int n = readAscii(cbuf, off, len);
+    if (n > 0)
+      return n;
+    return decode(cbuf, off, len);
+  }
+
+  /**
+   * Copies bytes up to the first non-ASCII one
+   *
+   * @return number of chars read
+   */
+  private int readAscii(char[] cbuf, int off, int len) {
+    int p = bytes.position();
+    int end = p + Math.min(len, bytes.remaining());
+    int i = p;
+    for (; i < end; i++) {
+      byte b = bytes.get(i);
+      if (b < 0) // lead or continuation byte of a multi-byte character
+        break;
+      cbuf[off++] = (char) b;
+    }
+    bytes.position(i);
+    return i - p;
+  }
+
+  /**
+   * Decodes from a non-ASCII byte, a few chars at most, so the next read
+   * can go back to readAscii
+   */
+  private int decode(char[] cbuf, int off, int len) throws IOException {
+    CharBuffer out = CharBuffer.wrap(cbuf, off, Math.min(len, DECODE_RUN));
+    CoderResult r = decoder.decode(bytes, out, true);
+    if (r.isError())
+      throw new CharacterCodingException();
+    if (!bytes.hasRemaining() && r.isUnderflow()) {
+      decoder.flush(out);
+      flushed = true;
+    }
+    int n = out.position() - off;
+    if (n == 0 && r.isOverflow()) { // len is 1 and the next character is a surrogate pair
+      if (decoder.decode(bytes, pair, true).isError())
+        throw new CharacterCodingException();
+      cbuf[off] = pair.get(0);
+      return 1;
+    }
+    return n == 0 && flushed ? -1 : n;
+  }
+
+  @Override
+  public void close() {
+    // the mapping is released when the buffer is garbage collected
+  }
+}
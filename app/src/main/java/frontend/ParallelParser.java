@@ -0,0 +1,243 @@
+package frontend;
+
+/**
+ * ParallelParser.java
+ *
+ * Parses a large source on several cores. The source is cut into chunks just
+ * after top-level semicolons, each chunk is lexed and parsed on a ForkJoinPool,
+ * and the chunks' statements are joined back together in source order.
+ *
+ * A `;` outside string literals and comments can only end a top-level
+ * statement, the parser accepts it nowhere else, so the parser of a chunk sees
+ * exactly the tokens a parse of the whole source would, and a syntax error is
+ * reported just as a sequential parse reports it. Whether a character is in a
+ * string or a comment depends on everything before it, so finding the cuts is
+ * split up too: every segment of the source is scanned in parallel once for
+ * each state it could start in (code, string or comment), then the segments
+ * are chained in order, which takes a few steps per segment. The same scans
+ * collect the line starts, so each chunk is lexed with offsets and a line
+ * table for the whole source.
+ */
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+import frontend.ast.LineTable;
+import frontend.ast.Program;
+import frontend.ast.StatementNode;
+
+public class ParallelParser {
+
+  // smaller sources are parsed sequentially, the tasks would cost more than they save
+  private static final int MIN_CHUNK = 1 << 16;
+  // segments per thread, so a thread that finishes early can take more work
+  private static final int SEGMENTS_PER_THREAD = 4;
+
+  // scanner states
+  private static final int CODE = 0;
+  private static final int STRING = 1;
+  private static final int COMMENT = 2;
+
+  private static final Parser parser = new Parser(); // keeps no state, safe to share
+
+  private final ForkJoinPool pool;
+
+  public ParallelParser() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param pool runs the scans and chunk parses, its parallelism decides how
+   *             many chunks the source is cut into
+   */
+  public ParallelParser(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Creates the full AST, the same one Parser.createAST would
+   *
+   * @return Program (list of Statements)
+   */
+  public Program createAST(String source) {
+    int segmentSize = Math.max(MIN_CHUNK, source.length() / (pool.getParallelism() * SEGMENTS_PER_THREAD));
+    if (source.length() < 2 * segmentSize)
+      return parser.createAST(source);
+
+    // scan the segments
+    List<CompletableFuture<Segment>> scans = new ArrayList<>();
+    for (int from = 0; from < source.length(); from += segmentSize) {
+      int start = from, end = Math.min(source.length(), from + segmentSize);
+      scans.add(CompletableFuture.supplyAsync(() -> new Segment(source, start, end), pool));
+    }
+
+    // chain them: where each segment starts decides its cut and its end state
+    List<Integer> cuts = new ArrayList<>();
+    cuts.add(0);
+    int state = CODE;
+    int newlines = 0;
+    List<Segment> segments = new ArrayList<>(scans.size());
+    for (CompletableFuture<Segment> scan : scans) {
+      Segment segment = result(scan);
+      if (!segments.isEmpty() && segment.cut[state] >= 0)
+        cuts.add(segment.cut[state]);
+      state = segment.exit[state];
+      newlines += segment.newlineCount;
+      segments.add(segment);
+    }
+    cuts.add(source.length());
+
+    int[] lineStarts = new int[newlines + 1];
+    int lines = 1;
+    for (Segment segment : segments) {
+      System.arraycopy(segment.newlines, 0, lineStarts, lines, segment.newlineCount);
+      lines += segment.newlineCount;
+    }
+    LineTable lineTable = new LineTable(lineStarts, lines);
+
+    // parse the chunks
+    List<CompletableFuture<Program>> parses = new ArrayList<>(cuts.size() - 1);
+    for (int i = 0; i + 1 < cuts.size(); i++) {
+      int start = cuts.get(i), end = cuts.get(i + 1);
+      parses.add(CompletableFuture.supplyAsync(
+          () -> parser.createAST(new RegionReader(source, start, end), start, lineTable), pool));
+    }
+    List<StatementNode> body = new ArrayList<>();
+    try {
+      for (CompletableFuture<Program> parse : parses)
+        body.addAll(result(parse).body); // the first error in source order is the one thrown
+    } finally {
+      for (CompletableFuture<Program> parse : parses)
+        parse.cancel(false); // no-op for finished ones, skips the rest after an error
+    }
+    return new Program(body, lineTable);
+  }
+
+  /**
+   * Waits for a task, rethrowing what it threw as it was thrown (a
+   * ForkJoinTask would rethrow a copy, wrapping the message)
+   */
+  private static <T> T result(CompletableFuture<T> task) {
+    try {
+      return task.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException r)
+        throw r;
+      if (e.getCause() instanceof Error err)
+        throw err;
+      throw e;
+    }
+  }
+
+  /**
+   * What one scan of source[from, to) found, for each state the segment could
+   * start in: the offset just after its first top-level `;` (-1 if there is
+   * none) and the state at its end. Newlines do not depend on the state.
+   */
+  private static final class Segment {
+    final int[] cut = new int[3];
+    final int[] exit = new int[3];
+    int[] newlines = new int[64]; // offsets of the lines starting in the segment
+    int newlineCount = 0;
+
+    Segment(String source, int from, int to) {
+      for (int i = source.indexOf('\n', from); i >= 0 && i < to; i = source.indexOf('\n', i + 1)) {
+        if (newlineCount == newlines.length)
+          newlines = Arrays.copyOf(newlines, newlineCount * 2);
+        newlines[newlineCount++] = i + 1;
+      }
+      for (int state = CODE; state <= COMMENT; state++) {
+        int r = firstCut(source, from, to, state);
+        if (r < 0) {
+          cut[state] = -1;
+          exit[state] = ~r;
+        } else {
+          cut[state] = r;
+          // from a cut on every scan is in code, scan the rest once per cut
+          int same = -1;
+          for (int s = CODE; s < state; s++) {
+            if (cut[s] == r)
+              same = s;
+          }
+          exit[state] = same >= 0 ? exit[same] : endState(source, r, to);
+        }
+      }
+    }
+  }
+
+  /**
+   * Scans source[from, to) starting in state, following the lexer's rules: a
+   * string runs to the next quote, a comment to the end of its line.
+   *
+   * @return the offset just after the first `;` outside strings and comments,
+   *         or if there is none, ~(the state at to)
+   */
+  private static int firstCut(String source, int from, int to, int state) {
+    for (int i = from; i < to; i++) {
+      char c = source.charAt(i);
+      switch (state) {
+        case CODE -> {
+          if (c == ';')
+            return i + 1;
+          if (c == '"')
+            state = STRING;
+          else if (c == '#')
+            state = COMMENT;
+        }
+        case STRING -> {
+          if (c == '"')
+            state = CODE;
+        }
+        default -> {
+          if (c == '\n')
+            state = CODE;
+        }
+      }
+    }
+    return ~state;
+  }
+
+  /**
+   * @return the state at to, scanning source[from, to) from code
+   */
+  private static int endState(String source, int from, int to) {
+    int r;
+    while ((r = firstCut(source, from, to, CODE)) >= 0)
+      from = r;
+    return ~r;
+  }
+
+  /**
+   * Reads source[from, to) without copying it
+   */
+  private static final class RegionReader extends Reader {
+    private final String source;
+    private final int to;
+    private int pos;
+
+    RegionReader(String source, int from, int to) {
+      this.source = source;
+      this.pos = from;
+      this.to = to;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+      if (pos >= to)
+        return -1;
+      int n = Math.min(len, to - pos);
+      source.getChars(pos, pos + n, cbuf, off);
+      pos += n;
+      return n;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
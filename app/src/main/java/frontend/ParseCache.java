@@ -0,0 +1,103 @@
+package frontend;
+
+/**
+ * ParseCache.java
+ *
+ * Bounded LRU cache of parsed Programs, keyed by a SHA-256 hash of the source
+ * code. AST nodes are immutable, so a cached Program can be evaluated any
+ * number of times, from any number of threads.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import frontend.ast.Program;
+
+public class ParseCache {
+  private final int maxEntries;
+  private final Map<String, Program> entries;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  public ParseCache(int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Parse cache must hold at least one entry, got " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) { // access order -> LRU
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Program> eldest) {
+        if (size() > ParseCache.this.maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached AST for the source code, parsing it only if it has not
+   * been seen recently.
+   *
+   * @return Program (list of Statements)
+   */
+  public Program createAST(String sourceCode) {
+    String key = hash(sourceCode);
+    synchronized (this) {
+      Program p = entries.get(key);
+      if (p != null) {
+        hits++;
+        return p;
+      }
+      misses++;
+    }
+    // parse outside the lock so other sources can be looked up meanwhile
+    Program p = new Parser().createAST(sourceCode);
+    synchronized (this) {
+      entries.put(key, p);
+    }
+    return p;
+  }
+
+  private static String hash(String sourceCode) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(sourceCode.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e); // required of every JVM
+    }
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("ParseCache[size=%d/%d, hits=%d, misses=%d, evictions=%d]",
+        entries.size(), maxEntries, hits, misses, evictions);
+  }
+}
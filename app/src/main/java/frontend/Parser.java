@@ -8,15 +8,17 @@ package frontend;
  *
  */
 
-import java.util.ArrayDeque;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.List;
 
+import frontend.ast.ArrayNode;
 import frontend.ast.BinaryExpr;
 import frontend.ast.ComparatorNode;
 import frontend.ast.ExprNode;
 import frontend.ast.IdentifierNode;
+import frontend.ast.IndexNode;
+import frontend.ast.LineTable;
 import frontend.ast.MemberNode;
 import frontend.ast.NumberNode;
 import frontend.ast.ObjectNode;
@@ -27,12 +29,25 @@ import frontend.ast.StatementNode;
 import frontend.ast.StringNode;
 import frontend.ast.VarAssignmentNode;
 import frontend.ast.VarDeclarationNode;
+import runtime.RtNumber;
 
 /**
- * 
+ * A Parser keeps no state between calls, each createAST parses with its own
+ * instance, so one Parser can be shared by any number of threads.
  */
 public class Parser {
-  private Deque<Token> tokens = new ArrayDeque<>();
+  private final TokenStream tokens; // null in the shared instances
+  private final Lexer lexer;
+
+  public Parser() {
+    this.tokens = null;
+    this.lexer = null;
+  }
+
+  private Parser(Lexer lexer) {
+    this.lexer = lexer;
+    this.tokens = new TokenStream(lexer);
+  }
 
   /**
    * Entry point for this class, creates the full AST
@@ -40,15 +55,53 @@ public class Parser {
    * @return Program (list of Statements)
    */
   public Program createAST(String sourceCode) {
-    this.tokens = Lexer.tokenise(sourceCode);
-    // tokens.stream().forEach((Token t) -> System.out.println(t.value));
-    Program p = new Program(new ArrayList<>());
+    return new Parser(new Lexer(sourceCode)).parseProgram();
+  }
+
+  /**
+   * Creates the full AST, lexing the source lazily as the parser consumes it.
+   * Only a small window of the source and a few tokens are held at any time.
+   * 
+   * @param source e.g. a MappedSourceReader for large files, closed once read
+   * @return Program (list of Statements)
+   */
+  public Program createAST(Reader source) {
+    return new Parser(new Lexer(source)).parseProgram();
+  }
+
+  /**
+   * Creates the AST of a part of a larger source, as ParallelParser does for
+   * each chunk, with node positions that are offsets in the whole source.
+   *
+   * @param base  source offset the part starts at
+   * @param lines line starts of the whole source
+   */
+  Program createAST(Reader part, int base, LineTable lines) {
+    return new Parser(new Lexer(part, base, lines)).parseProgram();
+  }
+
+  private Program parseProgram() {
+    List<StatementNode> body = new ArrayList<>();
 
     while (this.tokens.peek().type != TokenType.EOF) {
-      p.body.add(parseStatement());
+      body.add(parseStatement());
     }
 
-    return p;
+    return new Program(body, lexer.lines());
+  }
+
+  /**
+   * @return source offset of the next token
+   */
+  private int position() {
+    return this.tokens.position();
+  }
+
+  /**
+   * @return "line L, column C" of the next token, for error messages
+   */
+  private String where() {
+    return lexer.lines().describe(position());
   }
 
   /**
@@ -72,10 +125,11 @@ public class Parser {
    * @return value of the next token
    */
   private Token expect(TokenType expected, String errorMsg) {
+    String where = where();
     Token t = this.tokens.poll();
     if (t == null || t.type != expected) {
       throw new RuntimeException(
-          String.format("%s\nExpected: %s\nReceived: %s\n\n", errorMsg, expected, t.type));
+          String.format("%s\nExpected: %s\nReceived: %s\nAt: %s\n\n", errorMsg, expected, t.type, where));
     }
     return t;
   }
@@ -102,15 +156,16 @@ public class Parser {
    * @return VarDeclarationNode if successful
    */
   private StatementNode parseVarDeclaration() {
+    int start = position();
     boolean isConst = eat().value.equals("const");
     String varname = eat().value;
-    ExprNode expr = new IdentifierNode("null");
+    ExprNode expr = new IdentifierNode("null", start);
     // value required if const
     if (isConst || at().type == TokenType.EQUALS) {
       expect(TokenType.EQUALS, "'=' expected following variable name in variable declaration.");
       expr = parseExpr();
     }
-    return new VarDeclarationNode(varname, expr, isConst);
+    return new VarDeclarationNode(varname, expr, isConst, start);
   }
 
   /**
@@ -120,19 +175,20 @@ public class Parser {
    * @return VarDeclarationNode if successful
    */
   private StatementNode parsePrintStmt() {
+    int start = position();
     eat(); // eat PRINT token
     expect(TokenType.OPEN_PAREN, "print must be followed by an open parenthesis");
     ExprNode expr = parseExpr();
     expect(TokenType.CLOSE_PAREN, "open bracket not closed");
-    return new PrintNode(expr);
+    return new PrintNode(expr, start);
   }
 
   /**
    * Parse an expression into an expression tree
    *
    * Order of Precedence:
-   * 1. Base expressions (literals, parentheses, keywords)
-   * 2. Members (object.member || object[memberExpr])
+   * 1. Base expressions (literals, arrays, parentheses, keywords)
+   * 2. Members (object.member || object[memberExpr] || array[indexExpr])
    * 3. Multiplication
    * 4. Addition
    * 5. Comparators
@@ -153,7 +209,7 @@ public class Parser {
     ExprNode left = parseObject();
     if (at().type == TokenType.EQUALS) {
       eat(); // advance past equals token
-      return new VarAssignmentNode(left, parseExpr());
+      return new VarAssignmentNode(left, parseExpr(), left.getPosition());
     }
     return left;
   }
@@ -167,20 +223,22 @@ public class Parser {
       return parseComparatorExpr();
     }
 
+    int start = position();
     this.eat(); // consume {
     List<PropertyNode> properties = new ArrayList<>();
 
     while (at().type != TokenType.EOF && at().type != TokenType.CLOSE_BRACE) {
 
+      int keyStart = position();
       String key = expect(TokenType.IDENTIFIER, "identifier expected").value;
       expect(TokenType.COLON, "Colon (:) missing after key in object definition");
 
       ExprNode value = parseObject();
       expect(TokenType.COMMA, "Comma missing after property assignment");
-      properties.add(new PropertyNode(key, value));
+      properties.add(new PropertyNode(key, value, keyStart));
     }
     expect(TokenType.CLOSE_BRACE, "Object not closed");
-    return new ObjectNode(properties);
+    return new ObjectNode(properties, start);
   }
 
   private ExprNode parseComparatorExpr() {
@@ -188,7 +246,7 @@ public class Parser {
     while (at().type == TokenType.COMPARATOR) {
       String comparator = eat().value;
       ExprNode right = parseAddExpr();
-      left = new ComparatorNode(left, right, comparator);
+      left = new ComparatorNode(left, right, comparator, left.getPosition());
     }
     return left;
   }
@@ -201,10 +259,10 @@ public class Parser {
    */
   private ExprNode parseAddExpr() {
     ExprNode left = parseMultiplyExpr();
-    while (at().value.equals("+") || at().value.equals("-")) {
+    while (at().type == TokenType.PLUS || at().type == TokenType.MINUS) {
       String op = eat().value;
       ExprNode right = parseMultiplyExpr();
-      left = new BinaryExpr(left, right, op);
+      left = new BinaryExpr(left, right, op, left.getPosition());
     }
     return left;
   }
@@ -217,49 +275,75 @@ public class Parser {
    */
   private ExprNode parseMultiplyExpr() {
     ExprNode left = parseMemberExpr();
-    while (at().value.equals("*") || at().value.equals("/") || at().value.equals("%")) {
+    while (at().type == TokenType.STAR || at().type == TokenType.SLASH || at().type == TokenType.PERCENT) {
       String op = eat().value;
       ExprNode right = parseMemberExpr();
-      left = new BinaryExpr(left, right, op);
+      left = new BinaryExpr(left, right, op, left.getPosition());
     }
     return left;
   }
 
   private ExprNode parseMemberExpr() {
     ExprNode left = parseBaseExpr();
-    while (at().type == TokenType.DOT) {
-      eat(); // consume the dot
+    while (at().type == TokenType.DOT || at().type == TokenType.OPEN_BRACKET) {
+      if (eat().type == TokenType.OPEN_BRACKET) {
+        ExprNode index = parseExpr();
+        expect(TokenType.CLOSE_BRACKET, "Index not closed");
+        left = new IndexNode(left, index, left.getPosition());
+        continue;
+      }
+      int rightStart = position();
       Token t = expect(TokenType.IDENTIFIER, "Identifier expected following dot operator");
-      IdentifierNode right = new IdentifierNode(t.value);
-      left = new MemberNode(left, (IdentifierNode) right);
+      IdentifierNode right = new IdentifierNode(t.value, rightStart);
+      left = new MemberNode(left, right, left.getPosition());
     }
     return left;
   }
 
+  /**
+   * Parses an array of the form:
+   * [ ( value ), ... ], with an optional comma after the last value
+   */
+  private ExprNode parseArray(int start) {
+    List<ExprNode> elements = new ArrayList<>();
+    while (at().type != TokenType.EOF && at().type != TokenType.CLOSE_BRACKET) {
+      elements.add(parseObject());
+      if (at().type != TokenType.CLOSE_BRACKET)
+        expect(TokenType.COMMA, "Comma missing after array element");
+    }
+    expect(TokenType.CLOSE_BRACKET, "Array not closed");
+    return new ArrayNode(elements, start);
+  }
+
   /**
    * Parses a base expression (cannot be broken down further):
-   * identifiers, numbers, string literals, booleans, brackets
+   * identifiers, numbers, string literals, booleans, brackets, arrays
    * 
    * @return Expression
    */
   private ExprNode parseBaseExpr() {
+    int start = position();
     Token t = eat();
     switch (t.type) {
       case TokenType.IDENTIFIER -> {
-        return new IdentifierNode(t.value);
+        return new IdentifierNode(t.value, start);
       }
       case TokenType.NUMBER -> {
-        return new NumberNode(Integer.parseInt(t.value));
+        return new NumberNode(RtNumber.parse(t.value), start);
       }
       case TokenType.STRING -> {
-        return new StringNode(t.value);
+        return new StringNode(t.value, start);
       }
       case TokenType.OPEN_PAREN -> {
         ExprNode e = parseExpr();
         expect(TokenType.CLOSE_PAREN, "must close brackets after opening");
         return e;
       }
-      default -> throw new RuntimeException("Could not parse token: " + t.type + ", value = " + t.value);
+      case TokenType.OPEN_BRACKET -> {
+        return parseArray(start);
+      }
+      default -> throw new RuntimeException(
+          "Could not parse token: " + t.type + ", value = " + t.value + " (" + lexer.lines().describe(start) + ")");
     }
   }
 }
@@ -1,8 +1,12 @@
 package frontend;
 
+/**
+ * Tokens are immutable, so fixed tokens (punctuation, operators, keywords) are
+ * shared between every occurrence instead of being allocated each time.
+ */
 public class Token {
-  String value;
-  TokenType type;
+  final String value;
+  final TokenType type;
 
   public Token(String value, TokenType type) {
     this.value = value;
@@ -0,0 +1,65 @@
+package frontend;
+
+/**
+ * TokenStream.java
+ *
+ * Pulls tokens from a Lexer on demand, holding only a small ring buffer of
+ * lookahead tokens (and their source offsets) instead of the whole token list.
+ */
+class TokenStream {
+
+  private static final int LOOKAHEAD = 4; // must be a power of two
+
+  private final Lexer lexer;
+  private final Token[] ring = new Token[LOOKAHEAD];
+  private final int[] positions = new int[LOOKAHEAD]; // source offset of each token in ring
+  private int head = 0; // index of the next token in ring
+  private int count = 0; // number of buffered tokens
+
+  TokenStream(Lexer lexer) {
+    this.lexer = lexer;
+  }
+
+  /**
+   * @return the token k places ahead of the next one (0 = next token), without
+   *         consuming anything
+   */
+  Token peek(int k) {
+    if (k >= LOOKAHEAD) {
+      throw new IllegalArgumentException("Cannot look " + k + " tokens ahead, limit is " + (LOOKAHEAD - 1));
+    }
+    while (count <= k) {
+      int i = (head + count) & (LOOKAHEAD - 1);
+      ring[i] = lexer.next();
+      positions[i] = lexer.tokenStart();
+      count++;
+    }
+    return ring[(head + k) & (LOOKAHEAD - 1)];
+  }
+
+  /**
+   * @return the source offset of the next token
+   */
+  int position() {
+    peek(0);
+    return positions[head];
+  }
+
+  /**
+   * @return the next token, without consuming it
+   */
+  Token peek() {
+    return peek(0);
+  }
+
+  /**
+   * @return the next token, and removes it from the stream
+   */
+  Token poll() {
+    Token t = peek(0);
+    ring[head] = null;
+    head = (head + 1) & (LOOKAHEAD - 1);
+    count--;
+    return t;
+  }
+}
@@ -12,7 +12,8 @@ public enum TokenType {
   PRINT,
   // operators / groupings
   EQUALS,
-  BINARY_OPERATOR,
+  PLUS, MINUS, // additive operators
+  STAR, SLASH, PERCENT, // multiplicative operators
   COMPARATOR, // > / < / == / != / >= / <=
   OPEN_PAREN, CLOSE_PAREN,
   OPEN_BRACKET, CLOSE_BRACKET,
@@ -0,0 +1,20 @@
+package frontend.ast;
+
+import java.util.List;
+
+public class ArrayNode extends ExprNode {
+
+	public final List<ExprNode> elements;
+
+	public ArrayNode(List<ExprNode> elements, int position) {
+		this.type = NodeType.ARRAY;
+		this.position = position;
+		this.elements = List.copyOf(elements);
+	}
+
+	@Override
+	public String toString() {
+		return elements.toString();
+	}
+
+}
@@ -1,12 +1,13 @@
 package frontend.ast;
 
 public class BinaryExpr extends ExprNode {
-	public ExprNode left;
-	public ExprNode right;
-	public String operator;
+	public final ExprNode left;
+	public final ExprNode right;
+	public final String operator;
 
-	public BinaryExpr(ExprNode left, ExprNode right, String operator) {
+	public BinaryExpr(ExprNode left, ExprNode right, String operator, int position) {
 		this.type = NodeType.BINARY_EXPR;
+		this.position = position;
 		this.left = left;
 		this.right = right;
 		this.operator = operator;
@@ -0,0 +1,24 @@
+package frontend.ast;
+
+import runtime.RtBool;
+
+/**
+ * A true/false literal. The parser reads `true` and `false` as identifiers, so
+ * these only come from the optimizer folding a comparison.
+ */
+public class BooleanNode extends ExprNode {
+	public final boolean value;
+	public final RtBool runtimeValue;
+
+	public BooleanNode(boolean value, int position) {
+		this.type = NodeType.BOOLEAN;
+		this.position = position;
+		this.value = value;
+		this.runtimeValue = RtBool.of(value);
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(this.value);
+	}
+}
@@ -1,12 +1,13 @@
 package frontend.ast;
 
 public class ComparatorNode extends ExprNode {
-  public ExprNode left;
-  public ExprNode right;
-  public String operator;
+  public final ExprNode left;
+  public final ExprNode right;
+  public final String operator;
 
-  public ComparatorNode(ExprNode left, ExprNode right, String operator) {
+  public ComparatorNode(ExprNode left, ExprNode right, String operator, int position) {
     this.type = NodeType.COMPARATOR_EXPR;
+    this.position = position;
     this.left = left;
     this.right = right;
     this.operator = operator;
@@ -1,10 +1,11 @@
 package frontend.ast;
 
 public class IdentifierNode extends ExprNode {
-  public String symbol;
+  public final String symbol;
 
-  public IdentifierNode(String symbol) {
+  public IdentifierNode(String symbol, int position) {
     this.type = NodeType.IDENTIFIER;
+    this.position = position;
     this.symbol = symbol;
   }
 
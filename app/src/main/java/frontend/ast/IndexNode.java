@@ -0,0 +1,18 @@
+package frontend.ast;
+
+public class IndexNode extends ExprNode {
+	public final ExprNode target;
+	public final ExprNode index;
+
+	public IndexNode(ExprNode target, ExprNode index, int position) {
+		this.type = NodeType.INDEX;
+		this.position = position;
+		this.target = target;
+		this.index = index;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", target, index);
+	}
+}
@@ -0,0 +1,74 @@
+package frontend.ast;
+
+import java.util.Arrays;
+
+/**
+ * LineTable.java
+ *
+ * Maps character offsets in the source to lines and columns. Only the offset
+ * each line starts at is stored, in a packed int array in increasing order, so
+ * a lookup is a binary search and nodes need to carry nothing but their offset.
+ */
+public class LineTable {
+
+	private int[] lineStarts;
+	private int lines;
+
+	public LineTable() {
+		this(new int[] { 0 }, 1);
+	}
+
+	/**
+	 * @param lineStarts offset of the first character of each line, ascending,
+	 *                   starting with 0
+	 */
+	public LineTable(int[] lineStarts, int lines) {
+		this.lineStarts = lineStarts;
+		this.lines = lines;
+	}
+
+	/**
+	 * Records that a new line starts at offset, which must be after every line
+	 * start recorded so far
+	 */
+	public void addLine(int offset) {
+		if (lines == lineStarts.length)
+			lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+		lineStarts[lines++] = offset;
+	}
+
+	/**
+	 * @return 1-based line number that offset is on
+	 */
+	public int line(int offset) {
+		int i = Arrays.binarySearch(lineStarts, 0, lines, offset);
+		// not found: i = -(insertion point) - 1, the line is the one before the insertion point
+		return i >= 0 ? i + 1 : -i - 1;
+	}
+
+	/**
+	 * @return 1-based column of offset within its line
+	 */
+	public int column(int offset) {
+		return offset - lineStarts[line(offset) - 1] + 1;
+	}
+
+	/**
+	 * @return "line L, column C" for offset
+	 */
+	public String describe(int offset) {
+		int line = line(offset);
+		return "line " + line + ", column " + (offset - lineStarts[line - 1] + 1);
+	}
+
+	public int size() {
+		return lines;
+	}
+
+	/**
+	 * @return offset the 1-based line starts at
+	 */
+	public int lineStart(int line) {
+		return lineStarts[line - 1];
+	}
+}
@@ -1,13 +1,18 @@
 package frontend.ast;
 
+import runtime.InlineCache;
+
 public class MemberNode extends ExprNode {
-	public ExprNode left;
-	public IdentifierNode right;
+	public final ExprNode left;
+	public final IdentifierNode right;
+	public final InlineCache cache; // for looking up right in the objects left evaluates to
 
-	public MemberNode(ExprNode left, IdentifierNode right) {
+	public MemberNode(ExprNode left, IdentifierNode right, int position) {
 		this.type = NodeType.MEMBER;
+		this.position = position;
 		this.left = left;
 		this.right = right;
+		this.cache = new InlineCache(right.symbol);
 	}
 
 	@Override
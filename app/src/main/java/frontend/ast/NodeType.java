@@ -15,4 +15,7 @@ public enum NodeType {
   BINARY_EXPR,
   COMPARATOR_EXPR,
   IDENTIFIER, MEMBER, STRING,
+  SLOT, // identifier resolved to a (depth, slot) position by runtime.Resolver
+  ARRAY,
+  INDEX, // target[index], of an array or object
 }
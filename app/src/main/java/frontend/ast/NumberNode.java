@@ -1,19 +1,22 @@
 package frontend.ast;
 
+import runtime.RtNumber;
+
 public class NumberNode extends ExprNode {
-	int value;
+	public final RtNumber runtimeValue; // created once, shared by every evaluation
 
-	public NumberNode(int value) {
+	public NumberNode(RtNumber value, int position) {
 		this.type = NodeType.NUMBER;
-		this.value = value;
+		this.position = position;
+		this.runtimeValue = value;
 	}
 
-	public int getValue() {
-		return this.value;
+	public NumberNode(int value, int position) {
+		this(RtNumber.of(value), position);
 	}
 
 	@Override
 	public String toString() {
-		return String.valueOf(this.value);
+		return this.runtimeValue.toString();
 	}
 }
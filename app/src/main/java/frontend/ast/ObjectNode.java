@@ -2,13 +2,21 @@ package frontend.ast;
 
 import java.util.List;
 
+import runtime.Shape;
+
 public class ObjectNode extends ExprNode {
 
-	public List<PropertyNode> properties;
+	public final List<PropertyNode> properties;
+	public final Shape.Literal literal; // shape of the objects this creates
 
-	public ObjectNode(List<PropertyNode> properties) {
+	public ObjectNode(List<PropertyNode> properties, int position) {
 		this.type = NodeType.OBJECT;
-		this.properties = properties;
+		this.position = position;
+		this.properties = List.copyOf(properties);
+		String[] keys = new String[properties.size()];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = properties.get(i).key;
+		this.literal = Shape.Literal.of(keys);
 	}
 
 	@Override
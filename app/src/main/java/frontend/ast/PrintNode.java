@@ -2,10 +2,11 @@ package frontend.ast;
 
 public class PrintNode extends StatementNode {
 
-	public ExprNode toPrint;
+	public final ExprNode toPrint;
 
-	public PrintNode(ExprNode toPrint) {
+	public PrintNode(ExprNode toPrint, int position) {
 		this.type = NodeType.PRINT;
+		this.position = position;
 		this.toPrint = toPrint;
 	}
 
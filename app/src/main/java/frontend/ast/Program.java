@@ -3,11 +3,17 @@ package frontend.ast;
 import java.util.List;
 
 public class Program extends StatementNode {
-	public List<StatementNode> body;
+	public final List<StatementNode> body;
+	public final LineTable lines; // for the source the program was parsed from, null if not known
 
 	public Program(List<StatementNode> body) {
+		this(body, null);
+	}
+
+	public Program(List<StatementNode> body, LineTable lines) {
 		this.type = NodeType.PROGRAM;
-		this.body = body;
+		this.body = List.copyOf(body);
+		this.lines = lines;
 	}
 
 	@Override
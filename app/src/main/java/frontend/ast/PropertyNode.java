@@ -2,11 +2,12 @@ package frontend.ast;
 
 public class PropertyNode extends ExprNode {
 
-	public String key;
-	public ExprNode value;
+	public final String key;
+	public final ExprNode value;
 
-	public PropertyNode(String key, ExprNode value) {
+	public PropertyNode(String key, ExprNode value, int position) {
 		this.type = NodeType.PROPERTY;
+		this.position = position;
 		this.key = key;
 		this.value = value;
 	}
@@ -0,0 +1,25 @@
+package frontend.ast;
+
+/**
+ * An identifier whose variable has already been found: `depth` scopes up from
+ * the current one, at index `slot`. Created by runtime.Resolver, never by the
+ * parser.
+ */
+public class SlotNode extends ExprNode {
+  public final String symbol;
+  public final int depth;
+  public final int slot;
+
+  public SlotNode(String symbol, int depth, int slot, int position) {
+    this.type = NodeType.SLOT;
+    this.position = position;
+    this.symbol = symbol;
+    this.depth = depth;
+    this.slot = slot;
+  }
+
+  @Override
+  public String toString() {
+    return symbol;
+  }
+}
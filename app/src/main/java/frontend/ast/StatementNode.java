@@ -2,11 +2,16 @@ package frontend.ast;
 
 public abstract class StatementNode {
 	protected NodeType type;
+	protected int position = -1; // offset of the node's first character in the source, -1 if unknown
 
 	public NodeType getType() {
 		return this.type;
 	}
 
+	public int getPosition() {
+		return this.position;
+	}
+
 	@Override
 	public abstract String toString();
 }
@@ -1,12 +1,17 @@
 package frontend.ast;
 
+import runtime.RtString;
+
 public class StringNode extends ExprNode {
 
-  public String value;
+  public final String value;
+  public final RtString runtimeValue; // created once, shared by every evaluation
 
-  public StringNode(String value) {
+  public StringNode(String value, int position) {
     this.value = value;
+    this.runtimeValue = new RtString(value);
     this.type = NodeType.STRING;
+    this.position = position;
   }
 
   @Override
@@ -2,17 +2,18 @@ package frontend.ast;
 
 public class VarAssignmentNode extends ExprNode {
 
-	public ExprNode assignee;
-	public ExprNode expr;
+	public final ExprNode assignee;
+	public final ExprNode expr;
 
-	public VarAssignmentNode(ExprNode assignee, ExprNode expr) {
+	public VarAssignmentNode(ExprNode assignee, ExprNode expr, int position) {
 		this.type = NodeType.VAR_ASSIGNMENT;
+		this.position = position;
 		this.assignee = assignee;
 		this.expr = expr;
 	}
 
 	@Override
 	public String toString() {
-		return "AssignmentExpr";
+		return String.format("AssignmentExpr: %s = %s", assignee, expr);
 	}
 }
@@ -2,12 +2,13 @@ package frontend.ast;
 
 public class VarDeclarationNode extends StatementNode {
 
-	public String varname;
-	public boolean isConst;
-	public ExprNode value;
+	public final String varname;
+	public final boolean isConst;
+	public final ExprNode value;
 
-	public VarDeclarationNode(String varname, ExprNode value, boolean isConst) {
+	public VarDeclarationNode(String varname, ExprNode value, boolean isConst, int position) {
 		this.type = NodeType.VAR_DECLARATION;
+		this.position = position;
 		this.varname = varname;
 		this.value = value;
 		this.isConst = isConst;
@@ -3,45 +3,305 @@
  */
 package java_project;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import closure.ClosureCompiler;
+import engine.BatchRunner;
+import frontend.AstSerializer;
+import frontend.MappedSourceReader;
+import frontend.ParallelParser;
+import frontend.ParseCache;
 import frontend.Parser;
 import frontend.ast.Program;
+import frontend.ast.StatementNode;
+import optimizer.Optimizer;
+import profiler.Profile;
+import profiler.ProfilingInterpreter;
+import runtime.ExecutionEngine;
 import runtime.Interpreter;
+import runtime.JsonReader;
+import runtime.Output;
+import runtime.ParallelInterpreter;
+import runtime.RtVal;
 import runtime.Scope;
+import runtime.ScopeSnapshot;
+import vm.VirtualMachine;
 
 public class App {
+  // shared by every REPL line, so re-running the same source skips parsing
+  private static final ParseCache parseCache = new ParseCache(64);
+  private static ExecutionEngine engine = new Interpreter();
+  private static Function<Output, ExecutionEngine> engines = Interpreter::new; // for batch runs
+  private static int parallelism = Runtime.getRuntime().availableProcessors();
+  private static boolean optimize = true;
+  private static boolean dumpAst = false;
+  private static boolean parallelParse = false;
+  private static String profileOutput = null; // collapsed stacks file, null if not profiling
+  private static String snapshotFile = null;
+  private static ByteBuffer snapshot = null; // runs start from this scope snapshot, if given
+  private static String saveSnapshot = null; // snapshot file to write the scope to after a run
+  private static final Map<String, Path> jsonGlobals = new LinkedHashMap<>(); // constant name -> JSON file it holds
+
   /**
-   * run with no cmdline-args to access repl, or include a file to execute
+   * run with no cmdline-args to access repl, or include a file to execute.
+   * `--compile file.kat` writes the parsed file to file.katc, which can then be
+   * run directly like a source file.
+   * `--engine=tree|vm|closure|parallel` picks the engine that executes the program
+   * (default tree), parallel runs independent top-level statements at the same time.
+   * `--no-optimize` skips the optimizer for files, `--dump-ast` prints the AST
+   * before and after it runs.
+   * `--profile[=out.collapsed]` profiles a file run on the tree engine, printing
+   * a report to stderr and writing collapsed stacks (default file.collapsed).
+   * `--batch dir|manifest` runs every script in a directory or listed in a
+   * manifest, up to `--parallelism=N` at once (default one per core), and
+   * prints each one's output, outcome and time.
+   * `--parallel-parse` parses source files on `--parallelism` threads, for
+   * large files of many top-level statements.
+   * `--save-snapshot=file.kats` saves the global scope after a file run or REPL
+   * session, `--snapshot=file.kats` starts file, batch and REPL runs from a
+   * saved scope instead of an empty one, e.g. to skip re-running a prelude.
+   * `--json=name=data.json` reads a JSON file into a global constant `name`
+   * before file, batch and REPL runs, can be given more than once.
    */
   public static void main(String[] args) {
-    if (args.length == 1)
-      runFile(args[0]);
+    List<String> rest = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.startsWith("--engine=")) {
+        engines = createEngine(arg.substring("--engine=".length()));
+        engine = engines.apply(Output.stdout());
+      } else if (arg.startsWith("--parallelism="))
+        parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+      else if (arg.equals("--no-optimize"))
+        optimize = false;
+      else if (arg.equals("--parallel-parse"))
+        parallelParse = true;
+      else if (arg.equals("--dump-ast"))
+        dumpAst = true;
+      else if (arg.equals("--profile"))
+        profileOutput = "";
+      else if (arg.startsWith("--profile="))
+        profileOutput = arg.substring("--profile=".length());
+      else if (arg.startsWith("--snapshot="))
+        snapshotFile = arg.substring("--snapshot=".length());
+      else if (arg.startsWith("--save-snapshot="))
+        saveSnapshot = arg.substring("--save-snapshot=".length());
+      else if (arg.startsWith("--json=") && arg.indexOf('=', "--json=".length()) > 0) {
+        int eq = arg.indexOf('=', "--json=".length());
+        jsonGlobals.put(arg.substring("--json=".length(), eq), Path.of(arg.substring(eq + 1)));
+      }
+      else
+        rest.add(arg);
+    }
+
+    if (profileOutput != null) {
+      if (engine.getClass() != Interpreter.class)
+        throw new IllegalArgumentException("--profile only works with the tree engine");
+      engine = new ProfilingInterpreter();
+    }
+
+    if (snapshotFile != null) {
+      try {
+        snapshot = ByteBuffer.wrap(Files.readAllBytes(Path.of(snapshotFile)));
+      } catch (IOException e) {
+        System.err.println("Snapshot " + snapshotFile + " could not be read. Exiting.");
+        return;
+      }
+    }
+
+    for (Path json : jsonGlobals.values()) {
+      if (!Files.isReadable(json)) {
+        System.err.println("JSON file " + json + " could not be read. Exiting.");
+        return;
+      }
+    }
+
+    if (rest.size() == 2 && rest.get(0).equals("--compile"))
+      compileFile(rest.get(1));
+    else if (rest.size() == 2 && rest.get(0).equals("--batch"))
+      runBatch(rest.get(1));
+    else if (rest.size() == 1)
+      runFile(rest.get(0));
     else
       repl();
   }
 
+  /**
+   * @return creates the named engine, printing to the given Output
+   */
+  private static Function<Output, ExecutionEngine> createEngine(String name) {
+    return switch (name) {
+      case "tree" -> Interpreter::new;
+      case "vm" -> VirtualMachine::new;
+      case "closure" -> ClosureCompiler::new;
+      case "parallel" -> ParallelInterpreter::new;
+      default -> throw new IllegalArgumentException(
+          "Unknown engine '" + name + "', expected tree, vm, closure or parallel");
+    };
+  }
+
+  /**
+   * @return the scope a run starts in: a copy of the --snapshot if given,
+   *         otherwise a fresh one, with the --json constants declared in it.
+   *         Each run reads its own copy of the JSON, as scripts may change it.
+   */
+  private static Scope startScope(Supplier<Scope> fresh) {
+    Scope scope = snapshot == null ? fresh.get() : ScopeSnapshot.read(snapshot.duplicate());
+    for (Map.Entry<String, Path> e : jsonGlobals.entrySet()) {
+      try {
+        scope.declareVar(e.getKey(), JsonReader.read(e.getValue()), true);
+      } catch (IOException ex) {
+        throw new UncheckedIOException("Could not read " + e.getValue(), ex);
+      }
+    }
+    return scope;
+  }
+
+  /**
+   * Writes the scope to the --save-snapshot file, if given
+   */
+  private static void saveSnapshot(Scope scope) {
+    if (saveSnapshot == null)
+      return;
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(saveSnapshot)))) {
+      ScopeSnapshot.write(scope, out);
+      System.err.println("Scope snapshot written to " + saveSnapshot);
+    } catch (IOException e) {
+      System.err.println("Could not write " + saveSnapshot + ": " + e.getMessage());
+    }
+  }
+
   private static void runFile(String fname) {
-    Parser p = new Parser();
-    Interpreter interpreter = new Interpreter();
+    Scope globalScope = startScope(Scope::createGlobalScope);
+
+    try {
+      Program ast = fname.endsWith(".katc") ? loadCompiled(fname) : parseFile(fname);
+      try {
+        // the optimizer drops declarations nothing in the file reads, a snapshot needs them
+        engine.execute(saveSnapshot != null ? ast : optimize(ast, globalScope), globalScope);
+        saveSnapshot(globalScope);
+      } finally {
+        Output.stdout().flush(); // before any error or profile is reported
+        if (engine instanceof ProfilingInterpreter profiler)
+          writeProfile(profiler.getProfile(), fname);
+      }
+    } catch (FileNotFoundException e) {
+      System.err.println("File " + fname + " not found. Exiting.");
+    }
 
-    Scope globalScope = Scope.createGlobalScope();
+  }
 
+  private static void runBatch(String dirOrManifest) {
+    if (profileOutput != null)
+      throw new IllegalArgumentException("--profile does not work with --batch");
+    if (saveSnapshot != null)
+      throw new IllegalArgumentException("--save-snapshot does not work with --batch");
     try {
-      File f = new File(fname);
-      Scanner s = new Scanner(f);
-      String str = s.useDelimiter("\\Z").next();
-      s.close();
+      List<Path> scripts = BatchRunner.findScripts(Path.of(dirOrManifest));
+      long start = System.nanoTime();
+      List<BatchRunner.Result> results = new BatchRunner(engines, () -> startScope(Scope::createGlobalScope), optimize,
+          parallelism).run(scripts);
+      BatchRunner.report(results, System.nanoTime() - start, System.out);
+    } catch (IOException e) {
+      System.err.println("Could not read " + dirOrManifest + ": " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Batch interrupted.");
+    }
+  }
 
-      Program ast = p.createAST(str);
-      interpreter.evaluate(ast, globalScope);
+  private static void writeProfile(Profile profile, String fname) {
+    profile.report(System.err);
+    String outName = profileOutput.isEmpty() ? fname.replaceFirst("\\.katc?$", "") + ".collapsed" : profileOutput;
+    try (Writer out = Files.newBufferedWriter(Path.of(outName))) {
+      profile.writeCollapsedStacks(out);
+      System.err.println("Collapsed stacks written to " + outName);
+    } catch (IOException e) {
+      System.err.println("Could not write " + outName + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Runs the optimizer over a whole program, if enabled
+   *
+   * @param scope the scope the program will run in, null if it is not known
+   *              yet: then only literals and constants are folded
+   */
+  private static Program optimize(Program ast, Scope scope) {
+    if (dumpAst)
+      dump("AST before optimisation", ast);
+    if (!optimize)
+      return ast;
+    Program optimized = scope == null ? Optimizer.fold(ast) : Optimizer.optimize(ast, scope);
+    if (dumpAst)
+      dump("AST after optimisation", optimized);
+    return optimized;
+  }
+
+  private static void dump(String title, Program ast) {
+    System.err.println("==== " + title + " (" + ast.body.size() + " statements) ====");
+    for (StatementNode stmt : ast.body)
+      System.err.println(stmt);
+  }
+
+  /**
+   * Lexes the file straight out of a memory mapping, so it is never copied onto
+   * the heap whole and parsing starts without waiting for it to be read. With
+   * --parallel-parse the file is read whole instead, so it can be cut into
+   * chunks.
+   */
+  private static Program parseFile(String fname) throws FileNotFoundException {
+    try {
+      if (parallelParse) {
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+          return new ParallelParser(pool).createAST(Files.readString(Path.of(fname)));
+        }
+      }
+      return new Parser().createAST(new MappedSourceReader(Path.of(fname)));
+    } catch (IOException e) {
+      throw new FileNotFoundException(e.getMessage());
+    }
+  }
+
+  private static Program loadCompiled(String fname) throws FileNotFoundException {
+    try {
+      return AstSerializer.read(ByteBuffer.wrap(Files.readAllBytes(Path.of(fname))));
+    } catch (IOException e) {
+      throw new FileNotFoundException(e.getMessage());
+    }
+  }
+
+  /**
+   * Parses a source file and writes its AST next to it as a .katc file. Dead
+   * stores are left in: which are dead depends on the scope the file is run
+   * in, e.g. a --snapshot, so they are removed when it is run.
+   */
+  private static void compileFile(String fname) {
+    String outName = fname.replaceFirst("\\.kat$", "") + ".katc";
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(outName)))) {
+      AstSerializer.write(optimize(parseFile(fname), null), out);
+      System.out.println("Compiled " + fname + " to " + outName);
     } catch (FileNotFoundException e) {
       System.err.println("File " + fname + " not found. Exiting.");
+    } catch (IOException e) {
+      System.err.println("Could not write " + outName + ": " + e.getMessage());
     }
-
   }
 
   private static void repl() {
@@ -50,20 +310,21 @@ public class App {
     System.out.println("           Press 'q' to exit            ");
     System.out.println("========================================\n");
 
-    Parser parser = new Parser();
-    Interpreter interpreter = new Interpreter();
     Scanner s = new Scanner(System.in);
-    Scope env = new Scope(null);
+    Scope env = startScope(() -> new Scope(null));
 
     // break with EOF (Ctrl+D)
     while (true) {
       System.out.print("> ");
       try {
         String input = s.nextLine();
-        Program program = parser.createAST(input);
-        System.out.println(interpreter.evaluate(program, env));
+        Program program = parseCache.createAST(input);
+        RtVal result = engine.execute(program, env);
+        Output.stdout().flush();
+        System.out.println(result);
       } catch (NoSuchElementException e) {
         System.out.println("\n\nEOF found, shutting down repl.\n");
+        saveSnapshot(env);
         break;
       }
     }
@@ -0,0 +1,362 @@
+package optimizer;
+
+/**
+ * Optimizer.java
+ *
+ * AST to AST pass run between parsing and execution. It
+ * 1. folds binary expressions and comparisons whose operands are literals,
+ * 2. replaces reads of `const` variables holding a literal with the literal,
+ * 3. drops declarations (and plain assignments) of variables that are never
+ * read.
+ * Folding uses runtime.Operators, so a folded expression has exactly the value
+ * it would have had at run time. Anything that would throw at run time is left
+ * alone so it still throws.
+ *
+ * Only use it on whole programs: a REPL line cannot know whether later lines
+ * read a variable.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import frontend.ast.ArrayNode;
+import frontend.ast.BinaryExpr;
+import frontend.ast.BooleanNode;
+import frontend.ast.ComparatorNode;
+import frontend.ast.ExprNode;
+import frontend.ast.IdentifierNode;
+import frontend.ast.IndexNode;
+import frontend.ast.MemberNode;
+import frontend.ast.NodeType;
+import frontend.ast.NumberNode;
+import frontend.ast.ObjectNode;
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import frontend.ast.PropertyNode;
+import frontend.ast.StatementNode;
+import frontend.ast.StringNode;
+import frontend.ast.VarAssignmentNode;
+import frontend.ast.VarDeclarationNode;
+import runtime.Operators;
+import runtime.RtBool;
+import runtime.RtNumber;
+import runtime.RtString;
+import runtime.RtVal;
+import runtime.Scope;
+
+public class Optimizer {
+
+  // don't fold strings longer than this, the AST (and .katc files) would balloon
+  private static final int MAX_FOLDED_STRING = 1 << 16;
+
+  private final Map<String, ExprNode> constants = new HashMap<>(); // const varname -> literal value
+
+  /**
+   * Entry point for this class
+   *
+   * @param scope the scope the program will be run in, used to check whether a
+   *              declaration would fail because the name is already taken
+   * @return the optimised program
+   */
+  public static Program optimize(Program program, Scope scope) {
+    return new Program(new DeadStores(fold(program).body, scope).eliminate(), program.lines);
+  }
+
+  /**
+   * Only folds literals and constants, for programs stored before the scope
+   * they will run in is known (.katc files): which declarations are dead
+   * depends on that scope
+   *
+   * @return the folded program
+   */
+  public static Program fold(Program program) {
+    Optimizer o = new Optimizer();
+    List<StatementNode> body = new ArrayList<>(program.body.size());
+    for (StatementNode s : program.body) {
+      body.add(o.foldStatement(s));
+    }
+    return new Program(body, program.lines);
+  }
+
+  private static boolean isLiteral(ExprNode node) {
+    return node.getType() == NodeType.NUMBER || node.getType() == NodeType.STRING
+        || node.getType() == NodeType.BOOLEAN;
+  }
+
+  private static RtVal toValue(ExprNode literal) {
+    return switch (literal.getType()) {
+      case NUMBER -> ((NumberNode) literal).runtimeValue;
+      case STRING -> ((StringNode) literal).runtimeValue;
+      default -> ((BooleanNode) literal).runtimeValue;
+    };
+  }
+
+  /**
+   * @param position source position of the expression the value replaces
+   * @return literal node for the value, or null if it has no literal form
+   */
+  private static ExprNode toLiteral(RtVal val, int position) {
+    if (val instanceof RtNumber n)
+      return new NumberNode(n, position);
+    if (val instanceof RtString s)
+      return new StringNode(s.getValue(), position);
+    if (val instanceof RtBool b)
+      return new BooleanNode(b.val, position);
+    return null;
+  }
+
+  private StatementNode foldStatement(StatementNode node) {
+    switch (node.getType()) {
+      case VAR_DECLARATION -> {
+        VarDeclarationNode n = (VarDeclarationNode) node;
+        ExprNode value = fold(n.value);
+        // from here on, reads of the constant can use its value
+        if (n.isConst && isLiteral(value))
+          constants.putIfAbsent(n.varname, value);
+        return value == n.value ? n : new VarDeclarationNode(n.varname, value, n.isConst, n.getPosition());
+      }
+      case PRINT -> {
+        PrintNode n = (PrintNode) node;
+        ExprNode toPrint = fold(n.toPrint);
+        return toPrint == n.toPrint ? n : new PrintNode(toPrint, n.getPosition());
+      }
+      case PROGRAM -> {
+        return node;
+      }
+      default -> {
+        return fold((ExprNode) node);
+      }
+    }
+  }
+
+  /**
+   * @return the folded expression, or the same node if nothing in it changed
+   */
+  private ExprNode fold(ExprNode node) {
+    switch (node.getType()) {
+      case IDENTIFIER -> {
+        return constants.getOrDefault(((IdentifierNode) node).symbol, node);
+      }
+      case VAR_ASSIGNMENT -> {
+        VarAssignmentNode n = (VarAssignmentNode) node;
+        // a plain variable assignee is written, not read, so is never replaced
+        ExprNode assignee = n.assignee.getType() == NodeType.IDENTIFIER ? n.assignee : fold(n.assignee);
+        ExprNode expr = fold(n.expr);
+        return assignee == n.assignee && expr == n.expr ? n : new VarAssignmentNode(assignee, expr, n.getPosition());
+      }
+      case OBJECT -> {
+        ObjectNode n = (ObjectNode) node;
+        List<PropertyNode> properties = new ArrayList<>(n.properties.size());
+        boolean changed = false;
+        for (PropertyNode p : n.properties) {
+          ExprNode value = fold(p.value);
+          changed |= value != p.value;
+          properties.add(value == p.value ? p : new PropertyNode(p.key, value, p.getPosition()));
+        }
+        return changed ? new ObjectNode(properties, n.getPosition()) : n;
+      }
+      case ARRAY -> {
+        ArrayNode n = (ArrayNode) node;
+        List<ExprNode> elements = new ArrayList<>(n.elements.size());
+        boolean changed = false;
+        for (ExprNode e : n.elements) {
+          ExprNode folded = fold(e);
+          changed |= folded != e;
+          elements.add(folded);
+        }
+        return changed ? new ArrayNode(elements, n.getPosition()) : n;
+      }
+      case INDEX -> {
+        IndexNode n = (IndexNode) node;
+        ExprNode target = fold(n.target);
+        ExprNode index = fold(n.index);
+        return target == n.target && index == n.index ? n : new IndexNode(target, index, n.getPosition());
+      }
+      case BINARY_EXPR -> {
+        BinaryExpr n = (BinaryExpr) node;
+        ExprNode left = fold(n.left);
+        ExprNode right = fold(n.right);
+        ExprNode folded = foldBinary(left, right, n.operator);
+        if (folded != null)
+          return folded;
+        return left == n.left && right == n.right ? n : new BinaryExpr(left, right, n.operator, n.getPosition());
+      }
+      case COMPARATOR_EXPR -> {
+        ComparatorNode n = (ComparatorNode) node;
+        ExprNode left = fold(n.left);
+        ExprNode right = fold(n.right);
+        if (isLiteral(left) && isLiteral(right)) {
+          try {
+            return toLiteral(Operators.compare(toValue(left), toValue(right), n.operator), n.getPosition());
+          } catch (RuntimeException e) {
+            // comparison fails at run time (e.g. mismatched types), leave it to fail there
+          }
+        }
+        return left == n.left && right == n.right ? n : new ComparatorNode(left, right, n.operator, n.getPosition());
+      }
+      case MEMBER -> {
+        MemberNode n = (MemberNode) node;
+        ExprNode left = fold(n.left);
+        return left == n.left ? n : new MemberNode(left, n.right, n.getPosition());
+      }
+      default -> {
+        return node; // literals
+      }
+    }
+  }
+
+  /**
+   * @return literal holding the value of `left op right`, or null if it cannot
+   *         (or should not) be computed ahead of time
+   */
+  private static ExprNode foldBinary(ExprNode left, ExprNode right, String op) {
+    if (!isLiteral(left) || !isLiteral(right))
+      return null;
+    if (left.getType() == NodeType.STRING) {
+      double len = ((StringNode) left).value.length();
+      if (right.getType() == NodeType.STRING)
+        len += ((StringNode) right).value.length();
+      else if (right.getType() == NodeType.NUMBER)
+        len *= Math.max(0, ((NumberNode) right).runtimeValue.doubleValue());
+      if (len > MAX_FOLDED_STRING)
+        return null;
+    }
+    try {
+      return toLiteral(Operators.binary(toValue(left), toValue(right), op), left.getPosition());
+    } catch (ArithmeticException e) {
+      return null; // division by zero, leave it to fail at run time
+    }
+  }
+
+  /**
+   * Finds variables that are declared but never read, and removes their
+   * declaration and every assignment to them. Only done when removing the
+   * statements cannot change what the program does:
+   * - the name is declared exactly once, and would not clash with the scope
+   * - every assignment is its own statement, after the declaration, to a `let`
+   * - the declared and assigned values are literals, so evaluating them has no
+   * effect and cannot fail
+   */
+  private static class DeadStores {
+    private final List<StatementNode> body;
+    private final Scope scope;
+    private final Map<String, Integer> reads = new HashMap<>();
+    private final Map<String, Integer> declarations = new HashMap<>(); // varname -> number of declarations
+    private final Map<String, Integer> nestedAssignments = new HashMap<>(); // not a statement of their own
+
+    DeadStores(List<StatementNode> body, Scope scope) {
+      this.body = body;
+      this.scope = scope;
+    }
+
+    List<StatementNode> eliminate() {
+      for (StatementNode s : body) {
+        if (s.getType() == NodeType.VAR_DECLARATION) {
+          VarDeclarationNode n = (VarDeclarationNode) s;
+          declarations.merge(n.varname, 1, Integer::sum);
+          count(n.value);
+        } else if (s.getType() == NodeType.PRINT) {
+          count(((PrintNode) s).toPrint);
+        } else if (s instanceof VarAssignmentNode n && n.assignee.getType() == NodeType.IDENTIFIER) {
+          count(n.expr); // a top-level assignment, may be removable
+        } else if (s instanceof ExprNode e) {
+          count(e);
+        }
+      }
+
+      Set<String> dead = new HashSet<>();
+      List<StatementNode> kept = new ArrayList<>(body.size());
+      for (StatementNode s : body) {
+        if (s instanceof VarDeclarationNode n && isDead(n)) {
+          dead.add(n.varname);
+        } else if (!(s instanceof VarAssignmentNode n && n.assignee instanceof IdentifierNode target
+            && dead.contains(target.symbol))) {
+          kept.add(s);
+        }
+      }
+      return kept;
+    }
+
+    private boolean isDead(VarDeclarationNode n) {
+      if (reads.getOrDefault(n.varname, 0) > 0 || declarations.get(n.varname) != 1
+          || nestedAssignments.containsKey(n.varname) || scope.slotOf(n.varname) >= 0 || !isPure(n.value))
+        return false;
+      // every assignment to it must be removable too
+      boolean seenDecl = false;
+      for (StatementNode s : body) {
+        if (s == n) {
+          seenDecl = true;
+        } else if (s instanceof VarAssignmentNode a && a.assignee instanceof IdentifierNode target
+            && target.symbol.equals(n.varname)) {
+          if (!seenDecl || n.isConst || !isPure(a.expr))
+            return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isPure(ExprNode node) {
+      if (isLiteral(node))
+        return true;
+      if (node instanceof ObjectNode o) {
+        for (PropertyNode p : o.properties) {
+          if (!isPure(p.value))
+            return false;
+        }
+        return true;
+      }
+      if (node instanceof ArrayNode a) {
+        for (ExprNode e : a.elements) {
+          if (!isPure(e))
+            return false;
+        }
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Counts the variable reads (and nested assignments) in an expression
+     */
+    private void count(ExprNode node) {
+      switch (node.getType()) {
+        case IDENTIFIER -> reads.merge(((IdentifierNode) node).symbol, 1, Integer::sum);
+        case VAR_ASSIGNMENT -> {
+          VarAssignmentNode n = (VarAssignmentNode) node;
+          if (n.assignee instanceof IdentifierNode target)
+            nestedAssignments.merge(target.symbol, 1, Integer::sum);
+          else
+            count(n.assignee);
+          count(n.expr);
+        }
+        case OBJECT -> {
+          for (PropertyNode p : ((ObjectNode) node).properties)
+            count(p.value);
+        }
+        case ARRAY -> {
+          for (ExprNode e : ((ArrayNode) node).elements)
+            count(e);
+        }
+        case INDEX -> {
+          count(((IndexNode) node).target);
+          count(((IndexNode) node).index);
+        }
+        case BINARY_EXPR -> {
+          count(((BinaryExpr) node).left);
+          count(((BinaryExpr) node).right);
+        }
+        case COMPARATOR_EXPR -> {
+          count(((ComparatorNode) node).left);
+          count(((ComparatorNode) node).right);
+        }
+        case MEMBER -> count(((MemberNode) node).left); // right is a key, not a variable
+        default -> {
+        }
+      }
+    }
+  }
+}
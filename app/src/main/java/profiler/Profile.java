@@ -0,0 +1,151 @@
+package profiler;
+
+/**
+ * Profile.java
+ *
+ * Measurements collected by a ProfilingInterpreter:
+ * - evaluations, total and self nanoseconds per NodeType
+ * - evaluations and total nanoseconds per source line, counting the top-level
+ * statements that start on it
+ * - how many scopes each variable lookup went up, for lookups by name
+ * (Scope.getVarEnv) and by resolved slot
+ * - a call tree of node types, written out as collapsed stacks
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import frontend.ast.NodeType;
+
+public class Profile {
+
+  private static final NodeType[] nodeTypes = NodeType.values();
+  private static final int TOP_LINES = 20; // lines listed in the report
+
+  final long[] evaluations = new long[nodeTypes.length];
+  final long[] totalNanos = new long[nodeTypes.length];
+  final long[] selfNanos = new long[nodeTypes.length];
+
+  long[] lineEvaluations = new long[64]; // indexed by line number
+  long[] lineNanos = new long[64];
+  int lines = 0; // highest line number recorded + 1
+
+  long[] nameLookupDepths = new long[8];
+  long[] slotLookupDepths = new long[8];
+
+  final Frame root = new Frame(null);
+
+  /**
+   * A node in the call tree: the node types on the way down from the program
+   * to here, and the time spent in nodes at exactly this path.
+   */
+  static class Frame {
+    final NodeType type; // null for the root
+    final Frame[] children = new Frame[nodeTypes.length];
+    long selfNanos;
+
+    Frame(NodeType type) {
+      this.type = type;
+    }
+
+    Frame child(NodeType t) {
+      Frame f = children[t.ordinal()];
+      if (f == null)
+        f = children[t.ordinal()] = new Frame(t);
+      return f;
+    }
+  }
+
+  void recordLine(int line, long nanos) {
+    if (line >= lineNanos.length) {
+      int size = Math.max(line + 1, lineNanos.length * 2);
+      lineEvaluations = Arrays.copyOf(lineEvaluations, size);
+      lineNanos = Arrays.copyOf(lineNanos, size);
+    }
+    lineEvaluations[line]++;
+    lineNanos[line] += nanos;
+    lines = Math.max(lines, line + 1);
+  }
+
+  void recordNameLookup(int depth) {
+    nameLookupDepths = increment(nameLookupDepths, depth);
+  }
+
+  void recordSlotLookup(int depth) {
+    slotLookupDepths = increment(slotLookupDepths, depth);
+  }
+
+  private static long[] increment(long[] histogram, int depth) {
+    if (depth >= histogram.length)
+      histogram = Arrays.copyOf(histogram, Math.max(depth + 1, histogram.length * 2));
+    histogram[depth]++;
+    return histogram;
+  }
+
+  /**
+   * Prints the per node type, per line and lookup depth tables
+   */
+  public void report(PrintStream out) {
+    out.println("==== Profile: node types ====");
+    out.printf("%-16s %12s %12s %12s%n", "node type", "evaluations", "total ms", "self ms");
+    Integer[] byTime = new Integer[nodeTypes.length];
+    for (int i = 0; i < byTime.length; i++)
+      byTime[i] = i;
+    Arrays.sort(byTime, Comparator.comparingLong((Integer i) -> selfNanos[i]).reversed());
+    for (int i : byTime) {
+      if (evaluations[i] > 0)
+        out.printf("%-16s %12d %12.3f %12.3f%n", nodeTypes[i], evaluations[i], totalNanos[i] / 1e6, selfNanos[i] / 1e6);
+    }
+
+    out.println("==== Profile: slowest lines ====");
+    out.printf("%-16s %12s %12s%n", "line", "evaluations", "total ms");
+    List<Integer> slowest = new ArrayList<>();
+    for (int i = 0; i < lines; i++) {
+      if (lineEvaluations[i] > 0)
+        slowest.add(i);
+    }
+    slowest.sort(Comparator.comparingLong((Integer i) -> lineNanos[i]).reversed());
+    for (int i : slowest.subList(0, Math.min(TOP_LINES, slowest.size())))
+      out.printf("%-16d %12d %12.3f%n", i, lineEvaluations[i], lineNanos[i] / 1e6);
+
+    out.println("==== Profile: variable lookup depth ====");
+    printHistogram(out, "by name", nameLookupDepths);
+    printHistogram(out, "by slot", slotLookupDepths);
+  }
+
+  private static void printHistogram(PrintStream out, String title, long[] histogram) {
+    out.print(title + ":");
+    for (int depth = 0; depth < histogram.length; depth++) {
+      if (histogram[depth] > 0)
+        out.print(" depth " + depth + " = " + histogram[depth] + ";");
+    }
+    out.println();
+  }
+
+  /**
+   * Writes the call tree in the collapsed stack format read by flamegraph.pl
+   * and speedscope: one line per path, `PROGRAM;PRINT;BINARY_EXPR 1234`,
+   * weighted by self time in nanoseconds.
+   */
+  public void writeCollapsedStacks(Writer out) throws IOException {
+    for (Frame f : root.children) {
+      if (f != null)
+        writeFrame(out, f, f.type.name());
+    }
+    out.flush();
+  }
+
+  private static void writeFrame(Writer out, Frame frame, String path) throws IOException {
+    if (frame.selfNanos > 0)
+      out.write(path + " " + frame.selfNanos + "\n");
+    for (Frame f : frame.children) {
+      if (f != null)
+        writeFrame(out, f, path + ";" + f.type.name());
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package profiler;
+
+/**
+ * ProfilingInterpreter.java
+ *
+ * An Interpreter that times every node it evaluates and records it in a
+ * Profile. Profiling is opt-in by using this class instead of Interpreter, so
+ * the plain Interpreter's dispatch is not touched and costs nothing extra when
+ * profiling is off.
+ *
+ * Keeps per-run state, so use one instance per thread.
+ */
+
+import frontend.ast.ExprNode;
+import frontend.ast.IdentifierNode;
+import frontend.ast.NodeType;
+import frontend.ast.Program;
+import frontend.ast.SlotNode;
+import frontend.ast.StatementNode;
+import frontend.ast.VarAssignmentNode;
+import runtime.Interpreter;
+import runtime.RtNull;
+import runtime.RtVal;
+import runtime.Scope;
+import runtime.ScriptError;
+
+public class ProfilingInterpreter extends Interpreter {
+
+  private final Profile profile = new Profile();
+  private Profile.Frame current = profile.root;
+  private long childNanos = 0; // time spent so far in children of the node being evaluated
+
+  public Profile getProfile() {
+    return profile;
+  }
+
+  /**
+   * Times each top-level statement on its own and charges it to the line it
+   * starts on, or to its statement number if the program has no positions.
+   * Nested programs are timed like any other node.
+   */
+  @Override
+  public RtVal evaluateProgram(Program p, Scope scope) {
+    if (current != profile.root)
+      return super.evaluateProgram(p, scope);
+    RtVal lastProcessed = RtNull.NULL;
+    for (int i = 0; i < p.body.size(); i++) {
+      StatementNode s = p.body.get(i);
+      int line = p.lines != null && s.getPosition() >= 0 ? p.lines.line(s.getPosition()) : i + 1;
+      long start = System.nanoTime();
+      try {
+        lastProcessed = evaluate(s, scope);
+      } catch (RuntimeException e) {
+        throw ScriptError.at(e, s.getPosition(), p.lines);
+      } finally {
+        profile.recordLine(line, System.nanoTime() - start);
+      }
+    }
+    return lastProcessed;
+  }
+
+  @Override
+  public RtVal evaluate(StatementNode s, Scope scope) {
+    NodeType type = s.getType();
+    recordLookup(s, scope);
+
+    Profile.Frame parent = current;
+    long parentChildNanos = childNanos;
+    current = parent.child(type);
+    childNanos = 0;
+    long start = System.nanoTime();
+    try {
+      return super.evaluate(s, scope);
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      long self = elapsed - childNanos;
+      int t = type.ordinal();
+      profile.evaluations[t]++;
+      profile.totalNanos[t] += elapsed; // includes nested nodes of the same type
+      profile.selfNanos[t] += self;
+      current.selfNanos += self;
+      current = parent;
+      childNanos = parentChildNanos + elapsed;
+    }
+  }
+
+  private void recordLookup(StatementNode s, Scope scope) {
+    switch (s.getType()) {
+      case IDENTIFIER -> recordLookup((IdentifierNode) s, scope);
+      case SLOT -> profile.recordSlotLookup(((SlotNode) s).depth);
+      case VAR_ASSIGNMENT -> {
+        ExprNode assignee = ((VarAssignmentNode) s).assignee;
+        if (assignee instanceof IdentifierNode ident)
+          recordLookup(ident, scope);
+        else if (assignee instanceof SlotNode slot)
+          profile.recordSlotLookup(slot.depth);
+      }
+      default -> {
+      }
+    }
+  }
+
+  private void recordLookup(IdentifierNode ident, Scope scope) {
+    int depth = scope.depthOf(ident.symbol);
+    if (depth >= 0) // otherwise the lookup fails
+      profile.recordNameLookup(depth);
+  }
+}
@@ -0,0 +1,158 @@
+package runtime;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic.java
+ *
+ * The numeric tower behind the arithmetic and comparison operators. Integers
+ * are computed in int while the result fits, then in long, then in
+ * BigInteger; overflow is detected the way Math.addExact etc. do, without
+ * throwing. If either operand is a double the operation is done in double.
+ *
+ * The int methods are the fast path the engines call directly when both
+ * operands are RtInts. For results in the RtInt cache they allocate nothing.
+ */
+public class Arithmetic {
+
+  public static RtNumber add(int l, int r) {
+    int sum = l + r;
+    if (((l ^ sum) & (r ^ sum)) < 0) // both operands have the other sign from the result
+      return new RtLong((long) l + r);
+    return RtInt.of(sum);
+  }
+
+  public static RtNumber subtract(int l, int r) {
+    int diff = l - r;
+    if (((l ^ r) & (l ^ diff)) < 0)
+      return new RtLong((long) l - r);
+    return RtInt.of(diff);
+  }
+
+  public static RtNumber multiply(int l, int r) {
+    return RtNumber.of((long) l * r);
+  }
+
+  public static RtNumber divide(int l, int r) {
+    if (l == Integer.MIN_VALUE && r == -1)
+      return new RtLong(-(long) Integer.MIN_VALUE);
+    return RtInt.of(l / r); // throws ArithmeticException if r is 0
+  }
+
+  public static RtNumber modulo(int l, int r) {
+    return RtInt.of(l % r);
+  }
+
+  public static RtNumber binary(int l, int r, String op) {
+    return switch (op) {
+      case "+" -> add(l, r);
+      case "-" -> subtract(l, r);
+      case "*" -> multiply(l, r);
+      case "/" -> divide(l, r);
+      case "%" -> modulo(l, r);
+      default -> throw new RuntimeException("Evaluating BinaryNumberExpression, unrecognised operator: " + op);
+    };
+  }
+
+  /**
+   * @return result of `left op right`, in the narrowest form that holds it
+   */
+  public static RtNumber binary(RtNumber left, RtNumber right, String op) {
+    if (left instanceof RtInt l && right instanceof RtInt r)
+      return binary(l.val, r.val, op);
+    if (left instanceof RtDouble || right instanceof RtDouble)
+      return binaryDouble(left.doubleValue(), right.doubleValue(), op);
+    if (left instanceof RtBigInt || right instanceof RtBigInt)
+      return binaryBig(left.bigValue(), right.bigValue(), op);
+    return binaryLong(left.longValue(), right.longValue(), op);
+  }
+
+  private static RtNumber binaryLong(long l, long r, String op) {
+    switch (op) {
+      case "+" -> {
+        long sum = l + r;
+        if (((l ^ sum) & (r ^ sum)) >= 0)
+          return RtNumber.of(sum);
+      }
+      case "-" -> {
+        long diff = l - r;
+        if (((l ^ r) & (l ^ diff)) >= 0)
+          return RtNumber.of(diff);
+      }
+      case "*" -> {
+        long high = Math.multiplyHigh(l, r);
+        long low = l * r;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0))
+          return RtNumber.of(low);
+      }
+      case "/" -> {
+        if (r == 0)
+          throw new ArithmeticException("/ by zero");
+        if (l != Long.MIN_VALUE || r != -1)
+          return RtNumber.of(l / r);
+      }
+      case "%" -> {
+        if (r == 0)
+          throw new ArithmeticException("/ by zero");
+        return RtNumber.of(r == -1 ? 0 : l % r);
+      }
+      default -> throw new RuntimeException("Evaluating BinaryNumberExpression, unrecognised operator: " + op);
+    }
+    // overflowed
+    return binaryBig(BigInteger.valueOf(l), BigInteger.valueOf(r), op);
+  }
+
+  private static RtNumber binaryBig(BigInteger l, BigInteger r, String op) {
+    if ((op.equals("/") || op.equals("%")) && r.signum() == 0)
+      throw new ArithmeticException("/ by zero");
+    return RtNumber.of(switch (op) {
+      case "+" -> l.add(r);
+      case "-" -> l.subtract(r);
+      case "*" -> l.multiply(r);
+      case "/" -> l.divide(r);
+      case "%" -> l.remainder(r);
+      default -> throw new RuntimeException("Evaluating BinaryNumberExpression, unrecognised operator: " + op);
+    });
+  }
+
+  private static RtNumber binaryDouble(double l, double r, String op) {
+    return RtNumber.of(switch (op) {
+      case "+" -> l + r;
+      case "-" -> l - r;
+      case "*" -> l * r;
+      case "/" -> l / r;
+      case "%" -> l % r;
+      default -> throw new RuntimeException("Evaluating BinaryNumberExpression, unrecognised operator: " + op);
+    });
+  }
+
+  /**
+   * @return result of comparing the two numbers with op
+   */
+  public static boolean compare(RtNumber left, RtNumber right, String op) {
+    if (left instanceof RtDouble || right instanceof RtDouble) {
+      double l = left.doubleValue(), r = right.doubleValue();
+      return switch (op) {
+        case "==" -> l == r;
+        case "!=" -> l != r;
+        case ">=" -> l >= r;
+        case "<=" -> l <= r;
+        case ">" -> l > r;
+        case "<" -> l < r;
+        default -> throw new RuntimeException("Unexpected operator found for number comparison: " + op);
+      };
+    }
+    int c = left instanceof RtBigInt || right instanceof RtBigInt
+        ? left.bigValue().compareTo(right.bigValue())
+        : Long.compare(left.longValue(), right.longValue());
+    return switch (op) {
+      case "==" -> c == 0;
+      case "!=" -> c != 0;
+      case ">=" -> c >= 0;
+      case "<=" -> c <= 0;
+      case ">" -> c > 0;
+      case "<" -> c < 0;
+      default -> throw new RuntimeException("Unexpected operator found for integer comparison: " + op);
+    };
+  }
+}
@@ -0,0 +1,517 @@
+/**
+ * Dependencies.java
+ *
+ * Works out which top-level statements of a resolved program have to run in order, for the ParallelInterpreter: two
+ * statements are ordered if one of them writes something the other reads or writes, a variable or an object.
+ *
+ * Variables are known exactly, by the (depth, slot) the Resolver gave them. Objects only exist at run time, so they
+ * are tracked by the places they can end up in. Every variable and every key of an object has a points-to class, and
+ * storing a value somewhere merges the value's class with the place's (unification, as in Steensgaard's analysis), so
+ * one class stands for all the objects that can reach a place. The whole program is analysed before any order is
+ * decided, so objects aliased anywhere in the program are treated as aliased everywhere. Objects that existed before
+ * the program ran all share one class, whose keys all hold that class again.
+ *
+ * Reading a key, or printing, reads every object reachable from the object read: the error for a missing key and the
+ * printed text show all of them. Setting a key writes the object, since adding a key changes its layout. Arithmetic
+ * and comparisons never look inside objects, and creating an object touches no other object.
+ *
+ * Arrays are tracked as objects with all their elements under one key. An index is only known at run time, so the
+ * class of an object or array that is indexed is made universal: every key and element holds that class again.
+ *
+ * A statement the analysis can't see into, one that looks a variable up by name (which only happens when it is about
+ * to fail) or redeclares one, is exclusive: it runs after every statement before it, and before every one after it.
+ *
+ * A statement that changes a variable or an object, other than declaring its own variable, also runs after every
+ * statement before it, though later statements may still overlap it. If an earlier statement fails, such a statement
+ * never starts, so nothing is left changed that a sequential run would not have changed.
+ */
+
+package runtime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import frontend.ast.ArrayNode;
+import frontend.ast.BinaryExpr;
+import frontend.ast.ComparatorNode;
+import frontend.ast.ExprNode;
+import frontend.ast.IndexNode;
+import frontend.ast.MemberNode;
+import frontend.ast.ObjectNode;
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import frontend.ast.PropertyNode;
+import frontend.ast.SlotNode;
+import frontend.ast.StatementNode;
+import frontend.ast.VarAssignmentNode;
+import frontend.ast.VarDeclarationNode;
+
+final class Dependencies {
+
+  private static final String ELEMENTS = "[]"; // the key an array's elements are tracked under, not an identifier
+
+  final int[][] after; // the statements each statement waits for, by index
+  final int[] declarationSlots; // slot each statement declares its variable in, -1 if not a declaration run out of order
+  final boolean[] exclusive; // statements that run with nothing else running
+  final boolean[] mutates; // statements that change variables or objects, run after every statement before them
+  int declarations; // slots handed out to the program's declarations
+
+  private final Scope scope;
+  private final int initialSlots;
+  private final Map<String, Integer> declared; // declared by the program in `scope`
+  private int[] programVariables = new int[16]; // variable id + 1 of each slot of the program's scope, 0 if not seen
+  private final Map<Long, Integer> outerVariables = new HashMap<>(); // (depth << 32 | slot) -> variable id
+  private final List<Node> variableClasses = new ArrayList<>(); // points-to class of each variable id
+  private final Node existing = newNode(); // objects that existed before the program ran
+  private int nodes; // classes created, an upper bound on the classes left after merging
+  private boolean opaque; // the statement being visited looks a variable up by name
+  private int nextLocation;
+  private int traversals;
+
+  // accesses of every statement, recorded while visiting, statement i's run from start[i] to start[i + 1]
+  private final Ints variableReads = new Ints(), variableWrites = new Ints();
+  private final List<Node> objectReads = new ArrayList<>(), objectWrites = new ArrayList<>();
+  private final int[][] starts;
+
+  private Dependencies(Program program, Scope scope) {
+    int n = program.body.size();
+    this.after = new int[n][];
+    this.declarationSlots = new int[n];
+    this.exclusive = new boolean[n];
+    this.mutates = new boolean[n];
+    this.scope = scope;
+    this.initialSlots = scope.size();
+    this.declared = HashMap.newHashMap(n);
+    this.starts = new int[4][n + 1];
+    existing.universal = true;
+  }
+
+  /**
+   * @param program a program that has been through the Resolver, with scope
+   * @param scope   the scope the program will run in, exactly as it is now
+   */
+  static Dependencies analyse(Program program, Scope scope) {
+    Dependencies d = new Dependencies(program, scope);
+    for (int i = 0; i < program.body.size(); i++)
+      d.visitStatement(program.body.get(i), i);
+    d.order();
+    return d;
+  }
+
+  private void visitStatement(StatementNode node, int i) {
+    opaque = false;
+    declarationSlots[i] = -1;
+    int writes = variableWrites.size, objects = objectWrites.size();
+    switch (node.getType()) {
+      case VAR_DECLARATION -> {
+        VarDeclarationNode n = (VarDeclarationNode) node;
+        Node value = visit(n.value);
+        // the Resolver's slots: one per new name, in declaration order
+        if (scope.slotOf(n.varname) >= 0 || declared.containsKey(n.varname)) {
+          opaque = true; // fails, the variable exists
+        } else {
+          int slot = initialSlots + declarations++;
+          declared.put(n.varname, slot);
+          int v = variable(0, slot);
+          variableWrites.add(v);
+          if (value != null)
+            unify(variableClasses.get(v), value);
+          declarationSlots[i] = opaque ? -1 : slot;
+        }
+      }
+      case PRINT -> {
+        Node printed = visit(((PrintNode) node).toPrint);
+        if (printed != null)
+          objectReads.add(printed);
+      }
+      case PROGRAM -> opaque = true;
+      default -> visit((ExprNode) node);
+    }
+    exclusive[i] = opaque;
+    // a statement's own declaration is taken back if an earlier statement fails, other writes can't be
+    int declares = declarationSlots[i] >= 0 ? 1 : 0;
+    mutates[i] = variableWrites.size - writes > declares || objectWrites.size() > objects;
+    starts[0][i + 1] = variableReads.size;
+    starts[1][i + 1] = variableWrites.size;
+    starts[2][i + 1] = objectReads.size();
+    starts[3][i + 1] = objectWrites.size();
+  }
+
+  /**
+   * Records what evaluating node reads and writes
+   *
+   * @return the points-to class of node's value, or null if it can't be an
+   *         object
+   */
+  private Node visit(ExprNode node) {
+    switch (node.getType()) {
+      case SLOT -> {
+        SlotNode n = (SlotNode) node;
+        int v = variable(n.depth, n.slot);
+        variableReads.add(v);
+        return variableClasses.get(v);
+      }
+      case MEMBER -> {
+        MemberNode n = (MemberNode) node;
+        Node object = visit(n.left);
+        if (object == null)
+          return null; // fails, not an object
+        objectReads.add(object);
+        return field(object, n.cache.key);
+      }
+      case OBJECT -> {
+        Node object = newNode();
+        for (PropertyNode p : ((ObjectNode) node).properties) {
+          Node value = visit(p.value);
+          if (value != null)
+            unify(field(object, p.key), value);
+        }
+        return object;
+      }
+      case ARRAY -> {
+        Node array = newNode();
+        for (ExprNode e : ((ArrayNode) node).elements) {
+          Node value = visit(e);
+          if (value != null)
+            unify(field(array, ELEMENTS), value);
+        }
+        return array;
+      }
+      case INDEX -> {
+        IndexNode n = (IndexNode) node;
+        Node target = visit(n.target);
+        visit(n.index);
+        if (target == null)
+          return null; // fails, not an object or array
+        objectReads.add(target);
+        return indexed(target);
+      }
+      case VAR_ASSIGNMENT -> {
+        VarAssignmentNode n = (VarAssignmentNode) node;
+        switch (n.assignee.getType()) {
+          case SLOT -> {
+            SlotNode slot = (SlotNode) n.assignee;
+            Node value = visit(n.expr);
+            int v = variable(slot.depth, slot.slot);
+            variableWrites.add(v);
+            if (value != null)
+              unify(variableClasses.get(v), value);
+            return value;
+          }
+          case MEMBER -> {
+            MemberNode member = (MemberNode) n.assignee;
+            Node object = visit(member.left);
+            Node value = visit(n.expr);
+            if (object != null) {
+              objectWrites.add(object);
+              if (value != null)
+                unify(field(object, member.cache.key), value);
+            }
+            return value;
+          }
+          case INDEX -> {
+            IndexNode index = (IndexNode) n.assignee;
+            Node target = visit(index.target);
+            visit(index.index);
+            Node value = visit(n.expr);
+            if (target != null) {
+              objectWrites.add(target);
+              if (value != null)
+                unify(indexed(target), value);
+            }
+            return value;
+          }
+          default -> {
+            opaque = true;
+            visit(n.expr);
+            return existing;
+          }
+        }
+      }
+      case BINARY_EXPR -> {
+        BinaryExpr n = (BinaryExpr) node;
+        visit(n.left);
+        visit(n.right);
+        return null;
+      }
+      case COMPARATOR_EXPR -> {
+        ComparatorNode n = (ComparatorNode) node;
+        visit(n.left);
+        visit(n.right);
+        return null;
+      }
+      case NUMBER, STRING, BOOLEAN -> {
+        return null;
+      }
+      default -> { // identifiers the Resolver left alone
+        opaque = true;
+        return existing;
+      }
+    }
+  }
+
+  /**
+   * @return the id of the variable at (depth, slot), numbering it the first
+   *         time it is seen
+   */
+  private int variable(int depth, int slot) {
+    if (depth == 0) {
+      if (slot >= programVariables.length)
+        programVariables = Arrays.copyOf(programVariables, Math.max(slot + 1, programVariables.length * 2));
+      if (programVariables[slot] == 0)
+        programVariables[slot] = newVariable(slot < initialSlots) + 1;
+      return programVariables[slot] - 1;
+    }
+    return outerVariables.computeIfAbsent((long) depth << 32 | slot, k -> newVariable(true));
+  }
+
+  /**
+   * @param existed whether the variable held a value before the program ran,
+   *                so it can hold any existing object
+   */
+  private int newVariable(boolean existed) {
+    variableClasses.add(existed ? existing : newNode());
+    return variableClasses.size() - 1;
+  }
+
+  /**
+   * Turns the recorded accesses into edges: a statement waits for the last
+   * statement before it that wrote what it reads or writes, and a write also
+   * waits for every read since that write. Exclusive and mutating statements
+   * wait for every statement before them.
+   */
+  private void order() {
+    // locations are variable ids, then the classes numbered after them
+    nextLocation = variableClasses.size();
+    int[] lastWriter = new int[nextLocation + nodes];
+    Arrays.fill(lastWriter, -1);
+    Ints[] readers = new Ints[lastWriter.length];
+    int lastExclusive = -1; // statements before it are already waited for through it
+    int lastMutating = -1; // statements before it have finished when it starts
+
+    Ints locations = new Ints();
+    for (int i = 0; i < after.length; i++) {
+      Ints waits = new Ints();
+      if (lastExclusive >= 0)
+        waits.add(lastExclusive);
+      if (exclusive[i]) {
+        for (int j = lastExclusive + 1; j < i; j++)
+          waits.add(j);
+        lastExclusive = i;
+        after[i] = waits.toArray();
+        continue;
+      }
+      if (mutates[i]) {
+        for (int j = Math.max(lastExclusive, lastMutating) + 1; j < i; j++)
+          waits.add(j);
+        if (lastMutating > lastExclusive)
+          waits.add(lastMutating);
+        lastMutating = i;
+      }
+
+      locations.size = 0;
+      for (int k = starts[0][i]; k < starts[0][i + 1]; k++)
+        locations.add(variableReads.values[k]);
+      for (int k = starts[2][i]; k < starts[2][i + 1]; k++) {
+        for (int loc : reads(find(objectReads.get(k))))
+          locations.add(loc);
+      }
+      for (int k = 0; k < locations.size; k++) {
+        int loc = locations.values[k];
+        if (lastWriter[loc] > lastExclusive)
+          waits.add(lastWriter[loc]);
+        if (readers[loc] == null)
+          readers[loc] = new Ints();
+        readers[loc].add(i);
+      }
+
+      locations.size = 0;
+      for (int k = starts[1][i]; k < starts[1][i + 1]; k++)
+        locations.add(variableWrites.values[k]);
+      for (int k = starts[3][i]; k < starts[3][i + 1]; k++)
+        locations.add(location(find(objectWrites.get(k))));
+      for (int k = 0; k < locations.size; k++) {
+        int loc = locations.values[k];
+        if (lastWriter[loc] == i)
+          continue; // written twice by this statement, it must not wait for itself
+        if (lastWriter[loc] > lastExclusive)
+          waits.add(lastWriter[loc]);
+        Ints r = readers[loc];
+        if (r != null) {
+          for (int j = 0; j < r.size; j++) {
+            if (r.values[j] > lastExclusive && r.values[j] != i)
+              waits.add(r.values[j]);
+          }
+          r.size = 0;
+        }
+        lastWriter[loc] = i;
+      }
+      after[i] = waits.toArray();
+    }
+  }
+
+  /**
+   * @return the locations a read of an object of root's class reads: the
+   *         classes reachable from root through keys
+   */
+  private int[] reads(Node root) {
+    if (root.reads != null)
+      return root.reads;
+    Ints found = new Ints();
+    Deque<Node> todo = new ArrayDeque<>();
+    int stamp = ++traversals;
+    root.seen = stamp;
+    todo.push(root);
+    while (!todo.isEmpty()) {
+      Node n = todo.pop();
+      found.add(location(n));
+      if (n.fields == null)
+        continue;
+      for (Node f : n.fields.values()) {
+        f = find(f);
+        if (f.seen != stamp) {
+          f.seen = stamp;
+          todo.push(f);
+        }
+      }
+    }
+    return root.reads = found.toArray();
+  }
+
+  private int location(Node n) {
+    if (n.location < 0)
+      n.location = nextLocation++;
+    return n.location;
+  }
+
+  /**
+   * A points-to class: a set of objects that can be in the same places
+   */
+  private static final class Node {
+    Node parent = this; // union-find link, the class's representative if it points to itself
+    Map<String, Node> fields; // class of the objects each key can hold, null until a key is used
+    boolean universal; // every key holds objects of this class itself
+    // used once merging is done
+    int location = -1;
+    int[] reads;
+    int seen; // number of the last reads() traversal that reached this class
+  }
+
+  private Node newNode() {
+    nodes++;
+    return new Node();
+  }
+
+  private static Node find(Node n) {
+    while (n.parent != n) {
+      n.parent = n.parent.parent;
+      n = n.parent;
+    }
+    return n;
+  }
+
+  /**
+   * @return the class of the objects key can hold in objects of n's class
+   */
+  private Node field(Node n, String key) {
+    n = find(n);
+    if (n.universal)
+      return n;
+    if (n.fields == null)
+      n.fields = new HashMap<>();
+    return n.fields.computeIfAbsent(key, k -> newNode());
+  }
+
+  /**
+   * Makes n's class universal, as any of its keys or elements can be indexed
+   *
+   * @return the class of what indexing an object of n's class gives, n's class
+   */
+  private Node indexed(Node n) {
+    Node universal = newNode();
+    universal.universal = true;
+    unify(n, universal);
+    return find(n);
+  }
+
+  /**
+   * Merges two classes, and then the classes of their keys, and so on
+   */
+  private static void unify(Node a, Node b) {
+    Deque<Node> todo = new ArrayDeque<>();
+    todo.push(a);
+    todo.push(b);
+    while (!todo.isEmpty()) {
+      Node x = find(todo.pop()), y = find(todo.pop());
+      if (x == y)
+        continue;
+      if (size(y) > size(x)) {
+        Node t = x;
+        x = y;
+        y = t;
+      }
+      y.parent = x;
+      if (y.fields != null) {
+        for (Map.Entry<String, Node> e : y.fields.entrySet()) {
+          Node f = x.fields == null ? null : x.fields.get(e.getKey());
+          if (f == null) {
+            if (x.fields == null)
+              x.fields = new HashMap<>();
+            x.fields.put(e.getKey(), e.getValue());
+          } else {
+            todo.push(f);
+            todo.push(e.getValue());
+          }
+        }
+        y.fields = null;
+      }
+      if (y.universal || x.universal) { // every key's class becomes this one
+        x.universal = true;
+        if (x.fields != null) {
+          for (Node f : x.fields.values()) {
+            todo.push(x);
+            todo.push(f);
+          }
+          x.fields = null;
+        }
+      }
+    }
+  }
+
+  private static int size(Node n) {
+    return n.fields == null ? 0 : n.fields.size();
+  }
+
+  /**
+   * Growable int array
+   */
+  private static final class Ints {
+    int[] values = new int[4];
+    int size;
+
+    void add(int v) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, size * 2);
+      values[size++] = v;
+    }
+
+    /**
+     * @return the values sorted, without duplicates
+     */
+    int[] toArray() {
+      int[] sorted = Arrays.copyOf(values, size);
+      Arrays.sort(sorted);
+      int n = 0;
+      for (int i = 0; i < sorted.length; i++) {
+        if (n == 0 || sorted[i] != sorted[n - 1])
+          sorted[n++] = sorted[i];
+      }
+      return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package runtime;
+
+import frontend.ast.Program;
+
+/**
+ * ExecutionEngine.java
+ *
+ * Something that can run a parsed Program. Every engine must give the same
+ * results as the tree-walking Interpreter.
+ */
+public interface ExecutionEngine {
+
+  /**
+   * Runs every statement of the program in the given scope.
+   *
+   * @return the value of the last statement, or null for an empty program
+   */
+  RtVal execute(Program program, Scope scope);
+}
@@ -0,0 +1,65 @@
+/**
+ * InlineCache.java
+ *
+ * Monomorphic cache for one property access site (`a.b`). It remembers the Shape of the last object the site saw
+ * and where the key is stored in objects of that shape, so while the site keeps seeing objects of that shape a
+ * lookup is an identity check and an array read.
+ *
+ * The cached pair is held in one immutable Entry, so sites shared between threads can never see a shape paired
+ * with another shape's index.
+ */
+
+package runtime;
+
+public final class InlineCache {
+
+  private record Entry(Shape shape, int index) {
+  }
+
+  public final String key;
+  private Entry entry = new Entry(null, -1);
+
+  public InlineCache(String key) {
+    this.key = key;
+  }
+
+  /**
+   * @return the value of the key in object
+   *         Throws a RuntimeException if the object doesn't have the key
+   */
+  public RtVal get(RtObject object) {
+    Entry e = entry;
+    if (object.shape == e.shape)
+      return object.values[e.index];
+    int i = object.shape.indexOf(key);
+    if (i < 0)
+      throw new RuntimeException("Key '" + key + "' does not exist in object:\n" + object);
+    entry = new Entry(object.shape, i);
+    return object.values[i];
+  }
+
+  /**
+   * Sets the value of the key in object, adding the key if it doesn't have it.
+   * Only updates of existing keys are cached.
+   */
+  public RtVal set(RtObject object, RtVal val) {
+    Entry e = entry;
+    if (object.shape == e.shape && !object.frozen) {
+      object.values[e.index] = val;
+      return val;
+    }
+    int i = object.shape.indexOf(key);
+    if (i < 0 || object.frozen) { // put adds the key, or throws for a read-only object
+      object.put(key, val);
+      return val;
+    }
+    entry = new Entry(object.shape, i);
+    object.values[i] = val;
+    return val;
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
@@ -5,17 +5,37 @@ import frontend.ast.StringNode;
 import frontend.ast.VarDeclarationNode;
 import frontend.ast.VarAssignmentNode;
 
-import java.util.Map;
-import java.util.HashMap;
 
 import frontend.ast.*;
 
-public class Interpreter {
+public class Interpreter implements ExecutionEngine {
+
+  private final Output out; // where print statements write
+
+  public Interpreter() {
+    this(Output.stdout());
+  }
+
+  public Interpreter(Output out) {
+    this.out = out;
+  }
+
+  /**
+   * Resolves the program's variables against the scope, then evaluates it
+   */
+  @Override
+  public RtVal execute(Program program, Scope scope) {
+    return evaluateProgram(Resolver.resolve(program, scope), scope);
+  }
 
   public RtVal evaluateProgram(Program p, Scope scope) {
-    RtVal lastProcessed = new RtNull();
+    RtVal lastProcessed = RtNull.NULL;
     for (StatementNode s : p.body) {
-      lastProcessed = evaluate(s, scope);
+      try {
+        lastProcessed = evaluate(s, scope);
+      } catch (RuntimeException e) {
+        throw ScriptError.at(e, s.getPosition(), p.lines);
+      }
     }
     return lastProcessed;
   }
@@ -23,76 +43,13 @@ public class Interpreter {
   public RtVal evaluateComparatorExpr(ComparatorNode node, Scope scope) {
     RtVal left = evaluate(node.left, scope);
     RtVal right = evaluate(node.right, scope);
-
-    /* only allow comparisons between the same type */
-    if (left.type != right.type) {
-      throw new RuntimeException("Cannot compare values of type " + left.type + " and " + right.type);
-    }
-
-    boolean result = false;
-    // compare numbers
-    if (left.type == RuntimeType.NUMBER) {
-      int lNum = ((RtNumber) left).val;
-      int rNum = ((RtNumber) right).val;
-      switch (node.operator) {
-        case "==" -> result = lNum == rNum;
-        case "!=" -> result = lNum != rNum;
-        case ">=" -> result = lNum >= rNum;
-        case "<=" -> result = lNum <= rNum;
-        case ">" -> result = lNum > rNum;
-        case "<" -> result = lNum < rNum;
-        default -> throw new RuntimeException("Unexpected operator found for integer comparison: " + node.operator);
-      }
-    }
-    // compare strings
-    else if (left.type == RuntimeType.STRING) {
-      String lNum = ((RtString) left).value;
-      String rNum = ((RtString) right).value;
-      switch (node.operator) {
-        case "==" -> result = lNum.equals(rNum);
-        case "!=" -> result = !lNum.equals(rNum);
-        default -> throw new RuntimeException("Unexpected operator found for String comparison: " + node.operator);
-      }
-    }
-
-    return new RtBool(result);
+    return Operators.compare(left, right, node.operator);
   }
 
   public RtVal evaluateBinaryExpr(BinaryExpr expr, Scope scope) {
     RtVal left = evaluate(expr.left, scope);
     RtVal right = evaluate(expr.right, scope);
-
-    if (left.type == RuntimeType.NUMBER && right.type == RuntimeType.NUMBER) {
-      return evaluateBinaryNumberExpr(((RtNumber) left).val, ((RtNumber) right).val, expr.operator);
-    }
-    if (expr.operator.equals("+") && left.type == RuntimeType.STRING && right.type == RuntimeType.STRING) {
-      String newValue = ((RtString) left).value + ((RtString) right).value;
-      return new RtString(newValue);
-    }
-    if (expr.operator.equals("*") && left.type == RuntimeType.STRING && right.type == RuntimeType.NUMBER) {
-      String newValue = "";
-      for (int i = 0; i < ((RtNumber) right).val; i++) {
-        newValue += ((RtString) left).value;
-      }
-      return new RtString(newValue);
-    }
-    return new RtNull();
-  }
-
-  private RtVal evaluateBinaryNumberExpr(int l, int r, String op) {
-    if (op.equals("+"))
-      return new RtNumber(l + r);
-    else if (op.equals("-"))
-      return new RtNumber(l - r);
-    else if (op.equals("*"))
-      return new RtNumber(l * r);
-    else if (op.equals("/"))
-      return new RtNumber(l / r);
-    else if (op.equals("%"))
-      return new RtNumber(l % r);
-    else {
-      throw new RuntimeException("Evaluating BinaryNumberExpression, unrecognised operator: " + op);
-    }
+    return Operators.binary(left, right, expr.operator);
   }
 
   private RtVal evaluateIdentifier(IdentifierNode identifier, Scope scope) {
@@ -101,8 +58,7 @@ public class Interpreter {
 
   private RtVal evaluateMember(MemberNode node, Scope scope) {
     RtObject obj = (RtObject) evaluate(node.left, scope);
-    IdentifierNode ident = (IdentifierNode) node.right;
-    return scope.getVar(obj, ident.symbol);
+    return node.cache.get(obj);
   }
 
   /**
@@ -112,7 +68,7 @@ public class Interpreter {
    */
   private RtVal evaluateVarDeclaration(VarDeclarationNode node, Scope scope) {
     scope.declareVar(node.varname, evaluate(node.value, scope), node.isConst);
-    return new RtNull();
+    return RtNull.NULL;
   }
 
   /**
@@ -121,7 +77,11 @@ public class Interpreter {
    * @return the assigned value, allows chaining assignments (e.g. x = y = z)
    */
   private RtVal evaluateVarAssignment(VarAssignmentNode node, Scope scope) {
-    if (node.assignee.getType() == NodeType.IDENTIFIER) { /* literal variable */
+    if (node.assignee.getType() == NodeType.SLOT) { /* variable resolved ahead of time */
+      SlotNode slot = (SlotNode) node.assignee;
+      RtVal val = evaluate(node.expr, scope);
+      return scope.assignSlot(slot.depth, slot.slot, val);
+    } else if (node.assignee.getType() == NodeType.IDENTIFIER) { /* literal variable */
       String varname = ((IdentifierNode) node.assignee).symbol;
       RtVal val = evaluate(node.expr, scope);
       return scope.assignVar(varname, val);
@@ -129,24 +89,42 @@ public class Interpreter {
       MemberNode mNode = (MemberNode) node.assignee;
       // object whose property to change (recursive)
       RtObject obj = (RtObject) evaluate(mNode.left, scope);
-      IdentifierNode ident = (IdentifierNode) mNode.right;
-      return scope.assignVar(obj, ident.symbol, evaluate(node.expr, scope));
+      return mNode.cache.set(obj, evaluate(node.expr, scope));
+    } else if (node.assignee.getType() == NodeType.INDEX) {
+      IndexNode iNode = (IndexNode) node.assignee;
+      RtVal target = evaluate(iNode.target, scope);
+      RtVal index = evaluate(iNode.index, scope);
+      return Operators.assignIndex(target, index, evaluate(node.expr, scope));
     }
     throw new RuntimeException("Variable assignment has invalid assignee: " + node.assignee.toString());
 
   }
 
   private RtObject evaluateObject(ObjectNode node, Scope s) {
-    Map<String, RtVal> m = new HashMap<>();
-    for (PropertyNode p : node.properties) {
-      m.put(p.key, evaluate(p.value, s));
+    Shape.Literal literal = node.literal;
+    RtVal[] values = new RtVal[literal.shape().size()];
+    for (int i = 0; i < literal.indexes().length; i++) {
+      values[literal.indexes()[i]] = evaluate(node.properties.get(i).value, s);
+    }
+    return new RtObject(literal.shape(), values);
+  }
+
+  private RtArray evaluateArray(ArrayNode node, Scope s) {
+    RtVal[] elements = new RtVal[node.elements.size()];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = evaluate(node.elements.get(i), s);
     }
-    return new RtObject(m);
+    return RtArray.of(elements);
+  }
+
+  private RtVal evaluateIndex(IndexNode node, Scope scope) {
+    RtVal target = evaluate(node.target, scope);
+    return Operators.index(target, evaluate(node.index, scope));
   }
 
   private RtVal evaluatePrintStmt(PrintNode node, Scope s) {
-    System.out.println(evaluate(node.toPrint, s).toString());
-    return new RtNull();
+    out.println(evaluate(node.toPrint, s));
+    return RtNull.NULL;
   }
 
   public RtVal evaluate(StatementNode s, Scope scope) {
@@ -161,18 +139,26 @@ public class Interpreter {
         return evaluatePrintStmt((PrintNode) s, scope);
       case NodeType.OBJECT:
         return evaluateObject((ObjectNode) s, scope);
+      case NodeType.ARRAY:
+        return evaluateArray((ArrayNode) s, scope);
+      case NodeType.INDEX:
+        return evaluateIndex((IndexNode) s, scope);
       case NodeType.BINARY_EXPR:
         return evaluateBinaryExpr((BinaryExpr) s, scope);
       case NodeType.COMPARATOR_EXPR:
         return evaluateComparatorExpr((ComparatorNode) s, scope);
       case NodeType.NUMBER:
-        return new RtNumber(((NumberNode) s).getValue());
+        return ((NumberNode) s).runtimeValue;
       case NodeType.MEMBER:
         return evaluateMember((MemberNode) s, scope);
       case NodeType.STRING:
-        return new RtString(((StringNode) s).value);
+        return ((StringNode) s).runtimeValue;
+      case NodeType.BOOLEAN:
+        return ((BooleanNode) s).runtimeValue;
       case NodeType.IDENTIFIER:
         return evaluateIdentifier((IdentifierNode) s, scope);
+      case NodeType.SLOT:
+        return scope.getSlot(((SlotNode) s).depth, ((SlotNode) s).slot);
 
       default:
         throw new RuntimeException("Cannot interpret statement type: " + s.getType());
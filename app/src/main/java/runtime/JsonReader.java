@@ -0,0 +1,505 @@
+package runtime;
+
+/**
+ * JsonReader.java
+ *
+ * Reads a JSON document straight into runtime values, a buffer at a time, so
+ * data can be handed to a script without generating an object literal for it
+ * and running that through the Lexer, Parser and Interpreter.
+ *
+ * Objects become RtObjects and arrays RtArrays, packed if they only hold ints.
+ * Numbers take the narrowest RtNumber that holds them, as number literals do.
+ * The members of an object are collected on a stack until it closes, so its
+ * Shape and value array are built once at their final size. A key given twice
+ * is stored once, and the last value wins, as in an object literal. Key
+ * strings are interned per document, so a key repeated in every record is
+ * one String.
+ *
+ * Nesting is tracked on explicit stacks, so deeply nested documents don't
+ * overflow the Java stack.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import frontend.MappedSourceReader;
+
+public final class JsonReader {
+
+  private static final int BUFFER_SIZE = 1 << 16; // chars
+  private static final int EOF = -1;
+
+  private final Reader in;
+  private final char[] buf = new char[BUFFER_SIZE];
+  private int pos, limit;
+  private long consumed; // chars read before buf[0]
+  private int line = 1;
+  private long lineStart; // offset of the first char of the current line
+
+  // members of the open objects and arrays, innermost last
+  private RtVal[] values = new RtVal[64];
+  private String[] keys = new String[64];
+  private int top;
+  // open objects and arrays, innermost last
+  private int[] frameStarts = new int[16]; // index into values of each one's first member
+  private boolean[] frameIsArray = new boolean[16];
+  private int depth;
+
+  private char[] scratch = new char[64]; // strings and numbers that cross a buffer boundary or have escapes
+  private String[] interned = new String[256]; // open addressed, by String.hashCode
+  private int internedCount;
+
+  private JsonReader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * @return the value of the JSON document in the file
+   */
+  public static RtVal read(Path path) throws IOException {
+    try (Reader in = new MappedSourceReader(path)) {
+      return read(in);
+    }
+  }
+
+  /**
+   * Reads a whole JSON document from in, which is not closed.
+   * Throws a RuntimeException if the document is not valid JSON.
+   */
+  public static RtVal read(Reader in) throws IOException {
+    JsonReader r = new JsonReader(in);
+    RtVal val = r.readValue();
+    if (r.skipWhitespace() != EOF)
+      throw r.error("Unexpected data after the end of the document");
+    return val;
+  }
+
+  private RtVal readValue() throws IOException {
+    while (true) {
+      int c = skipWhitespace();
+      RtVal val;
+      switch (c) {
+        case '{' -> {
+          open(false);
+          c = skipWhitespace();
+          if (c != '}') {
+            readKey(c);
+            continue;
+          }
+          val = close();
+        }
+        case '[' -> {
+          open(true);
+          c = skipWhitespace();
+          if (c == EOF)
+            throw error("Array never closed");
+          if (c != ']') {
+            pos--; // the first element's first char, read from the buffer just now
+            continue;
+          }
+          val = close();
+        }
+        case '"' -> val = new RtString(readString());
+        case 't' -> {
+          expectWord("true");
+          val = RtBool.TRUE;
+        }
+        case 'f' -> {
+          expectWord("false");
+          val = RtBool.FALSE;
+        }
+        case 'n' -> {
+          expectWord("null");
+          val = RtNull.NULL;
+        }
+        case EOF -> throw error("Expected a value, the document ended");
+        default -> {
+          if (c != '-' && (c < '0' || c > '9'))
+            throw error("Expected a value, found '" + (char) c + "'");
+          val = readNumber(c);
+        }
+      }
+
+      // add the value to the enclosing objects and arrays, closing those that end here
+      while (true) {
+        if (depth == 0)
+          return val;
+        push(val);
+        boolean isArray = frameIsArray[depth - 1];
+        c = skipWhitespace();
+        if (c == ',') {
+          if (!isArray)
+            readKey(skipWhitespace());
+          break;
+        }
+        if (c != (isArray ? ']' : '}'))
+          throw error(isArray ? "Expected ',' or ']' in array" : "Expected ',' or '}' in object");
+        val = close();
+      }
+    }
+  }
+
+  private void open(boolean isArray) {
+    if (depth == frameStarts.length) {
+      frameStarts = Arrays.copyOf(frameStarts, depth * 2);
+      frameIsArray = Arrays.copyOf(frameIsArray, depth * 2);
+    }
+    frameStarts[depth] = top;
+    frameIsArray[depth] = isArray;
+    depth++;
+  }
+
+  /**
+   * Reads `"key":`, taking the stack slot its value will go in, so objects and
+   * arrays opened by the value start after it
+   */
+  private void readKey(int c) throws IOException {
+    if (c != '"')
+      throw error(c == EOF ? "Expected a key, the document ended" : "Expected a key, found '" + (char) c + "'");
+    ensureStack();
+    String key = readKeyString();
+    if (skipWhitespace() != ':')
+      throw error("Expected ':' after key '" + key + "'");
+    keys[top++] = key;
+  }
+
+  /**
+   * Adds a finished value to the innermost object or array
+   */
+  private void push(RtVal val) {
+    if (!frameIsArray[depth - 1]) {
+      values[top - 1] = val; // the slot readKey took
+      return;
+    }
+    ensureStack();
+    values[top++] = val;
+  }
+
+  private void ensureStack() {
+    if (top == values.length) {
+      values = Arrays.copyOf(values, top * 2);
+      keys = Arrays.copyOf(keys, top * 2);
+    }
+  }
+
+  /**
+   * Pops the innermost object or array off the stack
+   *
+   * @return it as an RtObject or RtArray
+   */
+  private RtVal close() {
+    depth--;
+    int start = frameStarts[depth];
+    if (frameIsArray[depth]) {
+      RtArray array = RtArray.of(Arrays.copyOfRange(values, start, top));
+      Arrays.fill(values, start, top, null);
+      top = start;
+      return array;
+    }
+    Shape shape;
+    RtVal[] vals;
+    if (top - start > Shape.MAX_SHARED_KEYS) {
+      Shape.Literal layout = Shape.Literal.of(Arrays.copyOfRange(keys, start, top));
+      shape = layout.shape();
+      vals = new RtVal[shape.size()];
+      for (int i = start; i < top; i++)
+        vals[layout.indexes()[i - start]] = values[i];
+    } else {
+      shape = Shape.EMPTY;
+      for (int i = start; i < top; i++) {
+        if (shape.indexOf(keys[i]) < 0)
+          shape = shape.add(keys[i]); // a dictionary of its own if the keys would widen the tree too much
+      }
+      if (shape.size() == top - start) { // no key given twice, the values are in shape order already
+        vals = Arrays.copyOfRange(values, start, top);
+      } else {
+        vals = new RtVal[shape.size()];
+        for (int i = start; i < top; i++)
+          vals[shape.indexOf(keys[i])] = values[i];
+      }
+    }
+    Arrays.fill(values, start, top, null); // don't keep finished values reachable
+    top = start;
+    return new RtObject(shape, vals);
+  }
+
+  /**
+   * Reads the rest of a key, after its opening quote, returning the interned
+   * String for it
+   */
+  private String readKeyString() throws IOException {
+    int end = plainStringEnd();
+    if (end >= 0) {
+      String key = intern(buf, pos, end - pos);
+      pos = end + 1;
+      return key;
+    }
+    int len = readEscapedString();
+    return intern(scratch, 0, len);
+  }
+
+  /**
+   * Reads the rest of a string, after its opening quote
+   */
+  private String readString() throws IOException {
+    int end = plainStringEnd();
+    if (end >= 0) {
+      String s = new String(buf, pos, end - pos);
+      pos = end + 1;
+      return s;
+    }
+    int len = readEscapedString(); // before reading scratch, which it may replace
+    return new String(scratch, 0, len);
+  }
+
+  /**
+   * @return the index of the closing quote of the string starting at pos, if
+   *         the whole string is in the buffer and has no escapes, otherwise -1
+   */
+  private int plainStringEnd() {
+    for (int i = pos; i < limit; i++) {
+      char c = buf[i];
+      if (c == '"')
+        return i;
+      if (c == '\\' || c < 0x20)
+        return -1;
+    }
+    return -1;
+  }
+
+  /**
+   * Decodes the rest of a string into scratch, reading more of the input as
+   * needed
+   *
+   * @return the length of the string
+   */
+  private int readEscapedString() throws IOException {
+    int len = 0;
+    while (true) {
+      int c = next();
+      if (c == '"')
+        return len;
+      if (c == EOF)
+        throw error("String never closed");
+      if (c < 0x20)
+        throw error("Control character in string");
+      if (c == '\\') {
+        c = next();
+        c = switch (c) {
+          case '"', '\\', '/' -> c;
+          case 'b' -> '\b';
+          case 'f' -> '\f';
+          case 'n' -> '\n';
+          case 'r' -> '\r';
+          case 't' -> '\t';
+          case 'u' -> readHex4();
+          default -> throw error("Invalid escape in string");
+        };
+      }
+      if (len == scratch.length)
+        scratch = Arrays.copyOf(scratch, len * 2);
+      scratch[len++] = (char) c;
+    }
+  }
+
+  private int readHex4() throws IOException {
+    int v = 0;
+    for (int i = 0; i < 4; i++) {
+      int d = Character.digit(next(), 16);
+      if (d < 0)
+        throw error("Invalid \\u escape in string");
+      v = v << 4 | d;
+    }
+    return v;
+  }
+
+  /**
+   * @return the String equal to cs[off, off + len) that was returned before,
+   *         or a new one
+   */
+  private String intern(char[] cs, int off, int len) {
+    int h = 0;
+    for (int i = off; i < off + len; i++)
+      h = 31 * h + cs[i];
+    int mask = interned.length - 1;
+    for (int i = (h ^ h >>> 16) & mask;; i = (i + 1) & mask) {
+      String s = interned[i];
+      if (s == null) {
+        s = new String(cs, off, len);
+        interned[i] = s;
+        if (++internedCount * 2 > interned.length)
+          growInterned();
+        return s;
+      }
+      if (s.hashCode() == h && equals(s, cs, off, len))
+        return s;
+    }
+  }
+
+  private static boolean equals(String s, char[] cs, int off, int len) {
+    if (s.length() != len)
+      return false;
+    for (int i = 0; i < len; i++) {
+      if (s.charAt(i) != cs[off + i])
+        return false;
+    }
+    return true;
+  }
+
+  private void growInterned() {
+    String[] old = interned;
+    interned = new String[old.length * 2];
+    int mask = interned.length - 1;
+    for (String s : old) {
+      if (s == null)
+        continue;
+      int h = s.hashCode();
+      int i = (h ^ h >>> 16) & mask;
+      while (interned[i] != null)
+        i = (i + 1) & mask;
+      interned[i] = s;
+    }
+  }
+
+  /**
+   * Reads a number whose first char is c
+   */
+  private RtNumber readNumber(int c) throws IOException {
+    int len = 0;
+    boolean integer = true;
+    while (true) {
+      if (len == scratch.length)
+        scratch = Arrays.copyOf(scratch, len * 2);
+      scratch[len++] = (char) c;
+      c = peek();
+      if (c >= '0' && c <= '9' || c == '-' || c == '+')
+        pos++;
+      else if (c == '.' || c == 'e' || c == 'E') {
+        integer = false;
+        pos++;
+      } else
+        break;
+    }
+    if (!isJsonNumber(scratch, len))
+      throw error("Invalid number '" + new String(scratch, 0, len) + "'");
+    boolean negative = scratch[0] == '-';
+    int digits = negative ? len - 1 : len;
+    if (!integer)
+      return RtNumber.of(Double.parseDouble(new String(scratch, 0, len)));
+    if (digits > 18)
+      return RtNumber.of(new BigInteger(new String(scratch, 0, len)));
+    long v = 0;
+    for (int i = negative ? 1 : 0; i < len; i++)
+      v = v * 10 + (scratch[i] - '0');
+    return RtNumber.of(negative ? -v : v);
+  }
+
+  /**
+   * @return whether cs[0, len) is a number as JSON writes them: an optional
+   *         minus, an integer part without leading zeros, then an optional
+   *         fraction and exponent
+   */
+  private static boolean isJsonNumber(char[] cs, int len) {
+    int i = 0;
+    if (cs[i] == '-')
+      i++;
+    if (i == len)
+      return false;
+    if (cs[i] == '0') {
+      i++;
+    } else {
+      int j = digits(cs, i, len);
+      if (j == i)
+        return false;
+      i = j;
+    }
+    if (i < len && cs[i] == '.') {
+      int j = digits(cs, i + 1, len);
+      if (j == i + 1)
+        return false;
+      i = j;
+    }
+    if (i < len && (cs[i] == 'e' || cs[i] == 'E')) {
+      i++;
+      if (i < len && (cs[i] == '+' || cs[i] == '-'))
+        i++;
+      int j = digits(cs, i, len);
+      if (j == i)
+        return false;
+      i = j;
+    }
+    return i == len;
+  }
+
+  /**
+   * @return the index after the run of digits starting at i
+   */
+  private static int digits(char[] cs, int i, int len) {
+    while (i < len && cs[i] >= '0' && cs[i] <= '9')
+      i++;
+    return i;
+  }
+
+  private void expectWord(String word) throws IOException {
+    for (int i = 1; i < word.length(); i++) {
+      if (next() != word.charAt(i))
+        throw error("Expected '" + word + "'");
+    }
+  }
+
+  /**
+   * @return the next char that is not whitespace, consuming it, or EOF
+   */
+  private int skipWhitespace() throws IOException {
+    while (true) {
+      if (pos == limit && !fill())
+        return EOF;
+      char c = buf[pos++];
+      if (c == '\n') {
+        line++;
+        lineStart = consumed + pos;
+      } else if (c != ' ' && c != '\t' && c != '\r') {
+        return c;
+      }
+    }
+  }
+
+  private int next() throws IOException {
+    if (pos == limit && !fill())
+      return EOF;
+    return buf[pos++];
+  }
+
+  private int peek() throws IOException {
+    if (pos == limit && !fill())
+      return EOF;
+    return buf[pos];
+  }
+
+  /**
+   * Replaces the buffer's contents with the next part of the input
+   *
+   * @return false at the end of the input
+   */
+  private boolean fill() throws IOException {
+    consumed += limit;
+    pos = 0;
+    limit = 0;
+    int n;
+    do {
+      n = in.read(buf, 0, buf.length);
+    } while (n == 0);
+    if (n < 0)
+      return false;
+    limit = n;
+    return true;
+  }
+
+  private RuntimeException error(String message) {
+    long column = consumed + pos - lineStart;
+    return new RuntimeException("Invalid JSON: " + message + " (line " + line + ", column " + column + ").");
+  }
+}
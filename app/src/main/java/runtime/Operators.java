@@ -0,0 +1,107 @@
+package runtime;
+
+/**
+ * Operators.java
+ *
+ * Semantics of the binary, comparison and index operators, shared by every
+ * execution engine so they all produce the same results.
+ */
+public class Operators {
+
+  /**
+   * @return result of `left op right` for an arithmetic operator, or null if
+   *         the operator is not defined for the operand types
+   */
+  public static RtVal binary(RtVal left, RtVal right, String op) {
+    if (left.type == RuntimeType.NUMBER && right.type == RuntimeType.NUMBER) {
+      return Arithmetic.binary((RtNumber) left, (RtNumber) right, op);
+    }
+    if (op.equals("+") && left.type == RuntimeType.STRING && right.type == RuntimeType.STRING) {
+      return RtString.concat((RtString) left, (RtString) right);
+    }
+    if (op.equals("*") && left.type == RuntimeType.STRING && right.type == RuntimeType.NUMBER) {
+      RtNumber times = (RtNumber) right;
+      if (times instanceof RtInt n)
+        return ((RtString) left).repeat(n.val);
+      if (times instanceof RtDouble)
+        return RtNull.NULL;
+      // more than Integer.MAX_VALUE copies only fits if the string is empty
+      return ((RtString) left).repeat(times.bigValue().signum() < 0 ? 0 : Integer.MAX_VALUE);
+    }
+    return RtNull.NULL;
+  }
+
+  /**
+   * @return result of `left op right` for a comparison operator
+   */
+  public static RtBool compare(RtVal left, RtVal right, String op) {
+    /* only allow comparisons between the same type */
+    if (left.type != right.type) {
+      throw new RuntimeException("Cannot compare values of type " + left.type + " and " + right.type);
+    }
+
+    boolean result = false;
+    // compare numbers
+    if (left.type == RuntimeType.NUMBER) {
+      result = Arithmetic.compare((RtNumber) left, (RtNumber) right, op);
+    }
+    // compare strings
+    else if (left.type == RuntimeType.STRING) {
+      String lNum = ((RtString) left).getValue();
+      String rNum = ((RtString) right).getValue();
+      switch (op) {
+        case "==" -> result = lNum.equals(rNum);
+        case "!=" -> result = !lNum.equals(rNum);
+        default -> throw new RuntimeException("Unexpected operator found for String comparison: " + op);
+      }
+    }
+
+    return RtBool.of(result);
+  }
+
+  /**
+   * @return result of `target[index]`: an element of an array, or the value of
+   *         a key of an object
+   */
+  public static RtVal index(RtVal target, RtVal index) {
+    if (target instanceof RtArray a)
+      return a.get(arrayIndex(a, index));
+    if (target instanceof RtObject o) {
+      String key = objectKey(index);
+      RtVal val = o.get(key);
+      if (val == null)
+        throw new RuntimeException("Key '" + key + "' does not exist in object:\n" + o);
+      return val;
+    }
+    throw new RuntimeException("Cannot index a value of type " + target.type);
+  }
+
+  /**
+   * Evaluates `target[index] = val`
+   *
+   * @return val
+   */
+  public static RtVal assignIndex(RtVal target, RtVal index, RtVal val) {
+    if (target instanceof RtArray a)
+      a.set(arrayIndex(a, index), val);
+    else if (target instanceof RtObject o)
+      o.put(objectKey(index), val);
+    else
+      throw new RuntimeException("Cannot index a value of type " + target.type);
+    return val;
+  }
+
+  private static int arrayIndex(RtArray a, RtVal index) {
+    if (index instanceof RtInt i)
+      return i.val;
+    if (index instanceof RtLong || index instanceof RtBigInt) // past any array's length
+      throw new RuntimeException("Index " + index + " out of bounds for array of length " + a.length());
+    throw new RuntimeException("Array index must be an integer, found " + index.type);
+  }
+
+  private static String objectKey(RtVal index) {
+    if (index instanceof RtString s)
+      return s.getValue();
+    throw new RuntimeException("Object key must be a string, found " + index.type);
+  }
+}
@@ -0,0 +1,232 @@
+package runtime;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Output.java
+ *
+ * Where print statements write to. Characters are collected in a large buffer
+ * and only handed to the underlying Writer when the buffer is full, on flush()
+ * or, for stdout(), when the JVM exits, rather than through a synchronised
+ * System.out.println that flushes every line. Values render straight into the
+ * buffer (RtVal.appendTo), so printing builds no intermediate strings. A value
+ * that fails to render half way prints nothing: its text is held back until
+ * it is complete, in a StringBuilder if it outgrows the buffer.
+ *
+ * Not thread-safe, give each thread its own Output.
+ */
+public class Output implements Appendable, Flushable {
+
+  public static final int DEFAULT_CAPACITY = 1 << 16; // chars
+  private static final int MIN_CAPACITY = 32; // room for any long
+
+  private static Output stdout;
+
+  private final Writer out;
+  private final char[] buffer;
+  private int size = 0;
+  private int value = -1; // where the value println is rendering starts in buffer, -1 if none
+  private StringBuilder spill; // the value println is rendering, once it has outgrown buffer
+
+  public Output(Writer out) {
+    this(out, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity chars buffered before they are written to out
+   */
+  public Output(Writer out, int capacity) {
+    this.out = out;
+    this.buffer = new char[Math.max(capacity, MIN_CAPACITY)];
+  }
+
+  /**
+   * @return the Output shared by everything printing to System.out, flushed
+   *         when the JVM exits
+   */
+  public static synchronized Output stdout() {
+    if (stdout == null) {
+      Output o = new Output(new OutputStreamWriter(System.out, System.out.charset()));
+      Runtime.getRuntime().addShutdownHook(new Thread(o::flush));
+      stdout = o;
+    }
+    return stdout;
+  }
+
+  /**
+   * Writes the value followed by a newline
+   */
+  public void println(RtVal val) {
+    value = size;
+    try {
+      val.appendTo(this);
+    } catch (IOException e) { // not thrown by Output, its writer's errors are already unchecked
+      discardValue();
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException | Error e) { // e.g. a StackOverflowError on a cyclic object
+      discardValue();
+      throw e;
+    }
+    value = -1;
+    if (spill != null) {
+      String text = spill.toString();
+      spill = null;
+      write(text);
+    }
+    append('\n');
+  }
+
+  private void discardValue() {
+    size = value;
+    value = -1;
+    spill = null;
+  }
+
+  @Override
+  public Output append(char c) {
+    if (size == buffer.length)
+      drain();
+    if (spill != null) {
+      spill.append(c);
+      return this;
+    }
+    buffer[size++] = c;
+    return this;
+  }
+
+  @Override
+  public Output append(CharSequence csq) {
+    if (csq == null)
+      csq = "null";
+    return append(csq, 0, csq.length());
+  }
+
+  @Override
+  public Output append(CharSequence csq, int start, int end) {
+    if (csq == null)
+      csq = "null";
+    if (end - start > buffer.length) { // would only pass through the buffer
+      if (value >= 0)
+        spillValue();
+      if (spill != null) {
+        spill.append(csq, start, end);
+        return this;
+      }
+      drain();
+      write(csq.subSequence(start, end).toString());
+      return this;
+    }
+    while (start < end) {
+      if (size == buffer.length)
+        drain();
+      if (spill != null) {
+        spill.append(csq, start, end);
+        return this;
+      }
+      int n = Math.min(end - start, buffer.length - size);
+      if (csq instanceof String s) {
+        s.getChars(start, start + n, buffer, size);
+      } else {
+        for (int i = 0; i < n; i++)
+          buffer[size + i] = csq.charAt(start + i);
+      }
+      size += n;
+      start += n;
+    }
+    return this;
+  }
+
+  /**
+   * Writes the decimal digits of v straight into the buffer
+   */
+  public Output append(long v) {
+    if (v == Long.MIN_VALUE) // has no positive counterpart
+      return append("-9223372036854775808");
+    if (buffer.length - size < 20)
+      drain();
+    if (spill != null) {
+      spill.append(v);
+      return this;
+    }
+    if (v < 0) {
+      buffer[size++] = '-';
+      v = -v;
+    }
+    int digits = 1;
+    for (long rest = v / 10; rest != 0; rest /= 10)
+      digits++;
+    int i = size + digits;
+    size = i;
+    do {
+      buffer[--i] = (char) ('0' + v % 10);
+      v /= 10;
+    } while (v != 0);
+    return this;
+  }
+
+  /**
+   * Writes everything buffered to the underlying Writer and flushes it
+   */
+  @Override
+  public void flush() {
+    drain();
+    try {
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Makes room in the buffer. Only writes what is complete: a value println is
+   * rendering moves to the front of the buffer, or to spill if it fills it.
+   */
+  private void drain() {
+    if (value < 0) {
+      writeBuffer(size);
+      size = 0;
+    } else if (value > 0 && buffer.length - (size - value) >= 20) { // room left for any long
+      writeBuffer(value);
+      System.arraycopy(buffer, value, buffer, 0, size - value);
+      size -= value;
+      value = 0;
+    } else {
+      spillValue();
+    }
+  }
+
+  /**
+   * Writes out what is before the value println is rendering, and moves the
+   * value to spill, where the rest of it goes too
+   */
+  private void spillValue() {
+    if (spill != null)
+      return;
+    writeBuffer(value);
+    spill = new StringBuilder(Math.max(2 * buffer.length, 16)).append(buffer, value, size - value);
+    size = 0;
+    value = 0;
+  }
+
+  private void writeBuffer(int end) {
+    if (end == 0)
+      return;
+    try {
+      out.write(buffer, 0, end);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void write(String s) {
+    try {
+      out.write(s);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package runtime;
+
+/**
+ * ParallelInterpreter.java
+ *
+ * Runs the top-level statements of a program on a ForkJoinPool, each one as
+ * soon as the statements it depends on (see Dependencies) have finished, so
+ * statements that share nothing run at the same time. Statements themselves
+ * are evaluated by a plain Interpreter.
+ *
+ * The results are those of running the statements in order. Each print
+ * renders its text when it runs, since a later statement could change the
+ * object printed, and the text is written out once every statement before it
+ * has finished, so output comes out in program order. When a statement
+ * fails, the error and the output before it are those of a sequential run,
+ * nothing printed after it is written, and variables declared after it are
+ * removed again. Statements that change variables or objects only start once
+ * every statement before them has finished (see Dependencies), so none of
+ * them runs after a failure, and the scope is left as a sequential run would
+ * leave it.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import frontend.ast.StatementNode;
+import frontend.ast.VarDeclarationNode;
+
+public class ParallelInterpreter implements ExecutionEngine {
+
+  private final Interpreter interpreter; // evaluates single statements, and whole programs that are too short
+  private final Output out; // where print statements write
+  private final ForkJoinPool pool;
+
+  public ParallelInterpreter() {
+    this(Output.stdout());
+  }
+
+  public ParallelInterpreter(Output out) {
+    this(out, ForkJoinPool.commonPool());
+  }
+
+  public ParallelInterpreter(Output out, ForkJoinPool pool) {
+    this.interpreter = new Interpreter(out);
+    this.out = out;
+    this.pool = pool;
+  }
+
+  /**
+   * Resolves the program's variables against the scope, then evaluates it
+   */
+  @Override
+  public RtVal execute(Program program, Scope scope) {
+    return evaluateProgram(Resolver.resolve(program, scope), scope);
+  }
+
+  /**
+   * @param p     a program that has been through the Resolver with scope
+   * @param scope must not be used by anything else until this returns
+   */
+  public RtVal evaluateProgram(Program p, Scope scope) {
+    if (p.body.size() < 2)
+      return interpreter.evaluateProgram(p, scope);
+    return new Run(p, scope, Dependencies.analyse(p, scope)).execute();
+  }
+
+  /**
+   * One evaluation of a program
+   */
+  private final class Run {
+    final List<StatementNode> body;
+    final Program program;
+    final Scope scope;
+    final Dependencies dependencies;
+    final int[][] successors;
+    final AtomicIntegerArray waiting; // statements each statement still waits for
+    final CountDownLatch finished;
+    final AtomicInteger failedAt; // first statement known to have failed, body.size() if none
+    final Throwable[] failures;
+    final boolean[] ran; // statements that ran to the end
+    final String[] printed; // text of finished print statements not written out yet
+    RtVal last = RtNull.NULL; // value of the last statement
+
+    // guarded by `this`
+    final boolean[] done;
+    int written = 0; // statements before this one have had their output written
+
+    Run(Program program, Scope scope, Dependencies dependencies) {
+      int n = program.body.size();
+      this.program = program;
+      this.body = program.body;
+      this.scope = scope;
+      this.dependencies = dependencies;
+      this.waiting = new AtomicIntegerArray(n);
+      this.finished = new CountDownLatch(n);
+      this.failedAt = new AtomicInteger(n);
+      this.failures = new Throwable[n];
+      this.ran = new boolean[n];
+      this.printed = new String[n];
+      this.done = new boolean[n];
+
+      int[] counts = new int[n];
+      for (int i = 0; i < n; i++) {
+        waiting.set(i, dependencies.after[i].length);
+        for (int j : dependencies.after[i])
+          counts[j]++;
+      }
+      successors = new int[n][];
+      for (int i = 0; i < n; i++)
+        successors[i] = new int[counts[i]];
+      for (int i = 0; i < n; i++) {
+        for (int j : dependencies.after[i])
+          successors[j][--counts[j]] = i;
+      }
+    }
+
+    RtVal execute() {
+      // declarations fill their slots in any order, the array must not move meanwhile
+      scope.reserve(scope.size() + dependencies.declarations);
+      // not waiting.get(i) == 0, the steps already started count that down for other statements
+      for (int i = 0; i < body.size(); i++) {
+        if (dependencies.after[i].length == 0)
+          pool.execute(new Step(i));
+      }
+      boolean interrupted = false;
+      while (true) {
+        try {
+          finished.await(); // the statements can't be stopped half way, always wait for them
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted)
+        Thread.currentThread().interrupt();
+
+      int failed = failedAt.get();
+      if (failed == body.size())
+        return last;
+      for (int i = failed + 1; i < body.size(); i++) {
+        if (ran[i] && dependencies.declarationSlots[i] >= 0)
+          scope.removeVar(((VarDeclarationNode) body.get(i)).varname);
+      }
+      if (failures[failed] instanceof RuntimeException e)
+        throw ScriptError.at(e, body.get(failed).getPosition(), program.lines);
+      throw (Error) failures[failed];
+    }
+
+    /**
+     * Runs a statement, and then each statement that was only waiting for it,
+     * forking the rest
+     */
+    final class Step extends RecursiveAction {
+      private static final long serialVersionUID = 1L;
+
+      private final int first;
+
+      Step(int first) {
+        this.first = first;
+      }
+
+      @Override
+      protected void compute() {
+        int i = first;
+        while (i >= 0) {
+          run(i);
+          int next = -1;
+          for (int s : successors[i]) {
+            if (waiting.decrementAndGet(s) == 0) {
+              if (next >= 0)
+                new Step(next).fork();
+              next = s;
+            }
+          }
+          finished.countDown();
+          i = next;
+        }
+      }
+    }
+
+    void run(int i) {
+      // statements after a failure would not have run, nor do their dependents
+      if (i < failedAt.get()) {
+        try {
+          RtVal val = evaluate(i);
+          if (i == body.size() - 1)
+            last = val;
+          ran[i] = true;
+        } catch (RuntimeException | Error e) {
+          failures[i] = e;
+          failedAt.accumulateAndGet(i, Math::min);
+        }
+      }
+      finish(i);
+    }
+
+    RtVal evaluate(int i) {
+      StatementNode s = body.get(i);
+      if (dependencies.exclusive[i])
+        return interpreter.evaluate(s, scope); // nothing else is running, it may print directly
+      int slot = dependencies.declarationSlots[i];
+      if (slot >= 0) {
+        VarDeclarationNode d = (VarDeclarationNode) s;
+        RtVal val = interpreter.evaluate(d.value, scope);
+        synchronized (scope) {
+          scope.declareVar(d.varname, slot, val, d.isConst);
+        }
+        return RtNull.NULL;
+      }
+      if (s instanceof PrintNode p) {
+        StringBuilder sb = new StringBuilder();
+        try {
+          interpreter.evaluate(p.toPrint, scope).appendTo(sb);
+        } catch (IOException e) { // StringBuilder doesn't throw
+          throw new UncheckedIOException(e);
+        }
+        printed[i] = sb.append('\n').toString();
+        return RtNull.NULL;
+      }
+      return interpreter.evaluate(s, scope);
+    }
+
+    /**
+     * Marks statement i finished, and writes out the output of every finished
+     * statement that has no unfinished statement before it
+     */
+    synchronized void finish(int i) {
+      done[i] = true;
+      while (written < body.size() && done[written] && written < failedAt.get()) {
+        String text = printed[written];
+        if (text != null) {
+          printed[written] = null;
+          try {
+            out.append(text);
+          } catch (RuntimeException e) { // fails the print, as it would have failed in a sequential run
+            failures[written] = e;
+            failedAt.accumulateAndGet(written, Math::min);
+            break;
+          }
+        }
+        written++;
+      }
+    }
+  }
+}
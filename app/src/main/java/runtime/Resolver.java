@@ -0,0 +1,200 @@
+/**
+ * Resolver.java
+ *
+ * Works out, before a program runs, where each variable it uses will live, and rewrites identifiers into SlotNodes
+ * holding that (depth, slot) position. Scopes hand out slots in declaration order, so replaying the program's
+ * declarations in order gives the same slots they will get at run time.
+ *
+ * Anything that would fail at run time (using an undeclared variable, redeclaring one, assigning to a constant) is
+ * left as it was, so it fails at the same point with the same error as before.
+ */
+
+package runtime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import frontend.ast.ArrayNode;
+import frontend.ast.BinaryExpr;
+import frontend.ast.ComparatorNode;
+import frontend.ast.ExprNode;
+import frontend.ast.IdentifierNode;
+import frontend.ast.IndexNode;
+import frontend.ast.MemberNode;
+import frontend.ast.NodeType;
+import frontend.ast.ObjectNode;
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import frontend.ast.PropertyNode;
+import frontend.ast.SlotNode;
+import frontend.ast.StatementNode;
+import frontend.ast.VarAssignmentNode;
+import frontend.ast.VarDeclarationNode;
+
+public class Resolver {
+
+  private final Scope scope;
+  private final Map<String, Integer> declared = new HashMap<>(); // declared by the program in `scope`
+  private final Set<String> declaredConstants = new HashSet<>();
+  private int nextSlot;
+
+  private Resolver(Scope scope) {
+    this.scope = scope;
+    this.nextSlot = scope.size();
+  }
+
+  /**
+   * Entry point for this class
+   *
+   * @param scope the scope the program will be run in, exactly as it is now
+   * @return the program with every resolvable identifier replaced by a SlotNode
+   */
+  public static Program resolve(Program program, Scope scope) {
+    return new Resolver(scope).resolveProgram(program);
+  }
+
+  private Program resolveProgram(Program program) {
+    List<StatementNode> body = new ArrayList<>(program.body.size());
+    for (StatementNode s : program.body) {
+      body.add(resolveStatement(s));
+    }
+    return new Program(body, program.lines);
+  }
+
+  /**
+   * @return whether the scope `depth` parents up from the program's is read-only
+   */
+  private boolean isFrozen(int depth) {
+    Scope s = scope;
+    for (int i = 0; i < depth; i++)
+      s = s.parent;
+    return s.frozen;
+  }
+
+  /**
+   * @return SlotNode for the variable's position, or null if it is not declared
+   */
+  private SlotNode lookup(String varname, int position) {
+    Integer slot = declared.get(varname);
+    if (slot != null)
+      return new SlotNode(varname, 0, slot, position);
+    Scope curr = scope;
+    for (int depth = 0; curr != null; depth++) {
+      int s = curr.slotOf(varname);
+      if (s >= 0)
+        return new SlotNode(varname, depth, s, position);
+      curr = curr.parent;
+    }
+    return null;
+  }
+
+  private StatementNode resolveStatement(StatementNode node) {
+    switch (node.getType()) {
+      case PROGRAM -> {
+        return resolveProgram((Program) node);
+      }
+      case VAR_DECLARATION -> {
+        VarDeclarationNode n = (VarDeclarationNode) node;
+        // value is evaluated before the variable exists
+        ExprNode value = resolveExpr(n.value);
+        if (scope.slotOf(n.varname) < 0 && !declared.containsKey(n.varname)) {
+          declared.put(n.varname, nextSlot++);
+          if (n.isConst)
+            declaredConstants.add(n.varname);
+        }
+        return value == n.value ? n : new VarDeclarationNode(n.varname, value, n.isConst, n.getPosition());
+      }
+      case PRINT -> {
+        PrintNode n = (PrintNode) node;
+        ExprNode toPrint = resolveExpr(n.toPrint);
+        return toPrint == n.toPrint ? n : new PrintNode(toPrint, n.getPosition());
+      }
+      default -> {
+        return resolveExpr((ExprNode) node);
+      }
+    }
+  }
+
+  /**
+   * @return the expression with identifiers resolved, or the same node if
+   *         nothing in it changed
+   */
+  private ExprNode resolveExpr(ExprNode node) {
+    switch (node.getType()) {
+      case IDENTIFIER -> {
+        SlotNode slot = lookup(((IdentifierNode) node).symbol, node.getPosition());
+        return slot != null ? slot : node;
+      }
+      case VAR_ASSIGNMENT -> {
+        VarAssignmentNode n = (VarAssignmentNode) node;
+        ExprNode assignee = n.assignee;
+        if (assignee.getType() == NodeType.IDENTIFIER) {
+          String varname = ((IdentifierNode) assignee).symbol;
+          // Scope.assignVar rejects constants of the current scope, keep that check
+          if (!scope.constants.contains(varname) && !declaredConstants.contains(varname)) {
+            SlotNode slot = lookup(varname, assignee.getPosition());
+            // and assignments to read-only scopes
+            if (slot != null && !isFrozen(slot.depth))
+              assignee = slot;
+          }
+        } else {
+          assignee = resolveExpr(assignee);
+        }
+        ExprNode expr = resolveExpr(n.expr);
+        return assignee == n.assignee && expr == n.expr ? n : new VarAssignmentNode(assignee, expr, n.getPosition());
+      }
+      case OBJECT -> {
+        ObjectNode n = (ObjectNode) node;
+        List<PropertyNode> properties = new ArrayList<>(n.properties.size());
+        boolean changed = false;
+        for (PropertyNode p : n.properties) {
+          ExprNode value = resolveExpr(p.value);
+          changed |= value != p.value;
+          properties.add(value == p.value ? p : new PropertyNode(p.key, value, p.getPosition()));
+        }
+        return changed ? new ObjectNode(properties, n.getPosition()) : n;
+      }
+      case ARRAY -> {
+        ArrayNode n = (ArrayNode) node;
+        List<ExprNode> elements = new ArrayList<>(n.elements.size());
+        boolean changed = false;
+        for (ExprNode e : n.elements) {
+          ExprNode resolved = resolveExpr(e);
+          changed |= resolved != e;
+          elements.add(resolved);
+        }
+        return changed ? new ArrayNode(elements, n.getPosition()) : n;
+      }
+      case INDEX -> {
+        IndexNode n = (IndexNode) node;
+        ExprNode target = resolveExpr(n.target);
+        ExprNode index = resolveExpr(n.index);
+        return target == n.target && index == n.index ? n : new IndexNode(target, index, n.getPosition());
+      }
+      case BINARY_EXPR -> {
+        BinaryExpr n = (BinaryExpr) node;
+        ExprNode left = resolveExpr(n.left);
+        ExprNode right = resolveExpr(n.right);
+        return left == n.left && right == n.right ? n : new BinaryExpr(left, right, n.operator, n.getPosition());
+      }
+      case COMPARATOR_EXPR -> {
+        ComparatorNode n = (ComparatorNode) node;
+        ExprNode left = resolveExpr(n.left);
+        ExprNode right = resolveExpr(n.right);
+        return left == n.left && right == n.right ? n : new ComparatorNode(left, right, n.operator, n.getPosition());
+      }
+      case MEMBER -> {
+        MemberNode n = (MemberNode) node;
+        ExprNode left = resolveExpr(n.left);
+        return left == n.left ? n : new MemberNode(left, n.right, n.getPosition());
+      }
+      default -> {
+        return node; // literals
+      }
+    }
+  }
+}
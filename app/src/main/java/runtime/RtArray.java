@@ -0,0 +1,161 @@
+package runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * An array value. While every element is an RtInt the elements are stored
+ * unboxed in an int[], 4 bytes each. The first other value stored moves them
+ * into an RtVal[], for good: the array keeps its identity, only its storage
+ * changes.
+ *
+ * Setting the index one past the end appends to the array, so it grows
+ * without holes.
+ */
+public class RtArray extends RtVal {
+
+	int[] ints; // the elements while they are all RtInts, null once mixed
+	RtVal[] values; // the elements once mixed, null before
+	int length;
+	boolean frozen; // read-only, set by Scope.freeze()
+
+	private RtArray(int[] ints, RtVal[] values, int length) {
+		super(RuntimeType.ARRAY);
+		this.ints = ints;
+		this.values = values;
+		this.length = length;
+	}
+
+	/**
+	 * @return an array of the given elements, packed if they are all RtInts.
+	 *         Keeps elements if it is not packed.
+	 */
+	public static RtArray of(RtVal[] elements) {
+		int[] packed = new int[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			if (!(elements[i] instanceof RtInt n))
+				return new RtArray(null, elements, elements.length);
+			packed[i] = n.val;
+		}
+		return new RtArray(packed, null, elements.length);
+	}
+
+	/**
+	 * @return a packed array holding ints, which it keeps
+	 */
+	public static RtArray of(int[] ints) {
+		return new RtArray(ints, null, ints.length);
+	}
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return whether the elements are stored unboxed
+	 */
+	public boolean isPacked() {
+		return ints != null;
+	}
+
+	/**
+	 * @return the element at index
+	 *         Throws a RuntimeException if index is out of bounds
+	 */
+	public RtVal get(int index) {
+		checkIndex(index, length);
+		return ints != null ? RtInt.of(ints[index]) : values[index];
+	}
+
+	/**
+	 * Sets the element at index, or appends val if index is the length
+	 * Throws a RuntimeException if index is out of bounds, or the array is
+	 * read-only
+	 */
+	public void set(int index, RtVal val) {
+		if (frozen)
+			throw new RuntimeException("Cannot set index " + index + ". The array is read-only.");
+		checkIndex(index, length + 1);
+		if (ints != null && !(val instanceof RtInt))
+			unpack();
+		if (index == length)
+			grow();
+		if (ints != null)
+			ints[index] = ((RtInt) val).val;
+		else
+			values[index] = val;
+		if (index == length)
+			length++;
+	}
+
+	private void checkIndex(int index, int bound) {
+		if (index < 0 || index >= bound)
+			throw new RuntimeException("Index " + index + " out of bounds for array of length " + length);
+	}
+
+	/**
+	 * Moves the elements into an RtVal[], so they can be any value
+	 */
+	private void unpack() {
+		RtVal[] boxed = new RtVal[Math.max(length, ints.length)];
+		for (int i = 0; i < length; i++)
+			boxed[i] = RtInt.of(ints[i]);
+		values = boxed;
+		ints = null;
+	}
+
+	/**
+	 * Makes room for one more element
+	 */
+	private void grow() {
+		int capacity = ints != null ? ints.length : values.length;
+		if (length < capacity)
+			return;
+		int grown = Math.max(4, capacity * 2);
+		if (ints != null)
+			ints = Arrays.copyOf(ints, grown);
+		else
+			values = Arrays.copyOf(values, grown);
+	}
+
+	/**
+	 * Makes this array and every object and array reachable from it read-only
+	 */
+	@Override
+	void freeze() {
+		if (frozen)
+			return; // also stops at cycles
+		frozen = true;
+		if (values != null) {
+			for (int i = 0; i < length; i++)
+				values[i].freeze();
+		}
+	}
+
+	@Override
+	public void appendTo(Appendable out) throws IOException {
+		// `[a, b]`, as a java.util.List prints
+		out.append('[');
+		for (int i = 0; i < length; i++) {
+			if (i > 0)
+				out.append(", ");
+			if (ints != null)
+				RtNumber.appendLong(out, ints[i]);
+			else
+				values[i].appendTo(out);
+		}
+		out.append(']');
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			appendTo(sb);
+		} catch (IOException e) { // StringBuilder doesn't throw
+			throw new UncheckedIOException(e);
+		}
+		return sb.toString();
+	}
+}
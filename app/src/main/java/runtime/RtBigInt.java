@@ -0,0 +1,35 @@
+package runtime;
+
+import java.math.BigInteger;
+
+/**
+ * An integer that does not fit in a long
+ */
+public final class RtBigInt extends RtNumber {
+
+	public final BigInteger val;
+
+	RtBigInt(BigInteger val) {
+		this.val = val;
+	}
+
+	@Override
+	public long longValue() {
+		return val.longValue();
+	}
+
+	@Override
+	public BigInteger bigValue() {
+		return val;
+	}
+
+	@Override
+	public double doubleValue() {
+		return val.doubleValue();
+	}
+
+	@Override
+	public String toString() {
+		return val.toString();
+	}
+}
@@ -1,14 +1,28 @@
 package runtime;
 
+import java.io.IOException;
+
 public class RtBool extends RtVal {
 
-	public boolean val;
+	public static final RtBool TRUE = new RtBool(true);
+	public static final RtBool FALSE = new RtBool(false);
+
+	public final boolean val;
 
-	public RtBool(boolean val) {
-		this.type = RuntimeType.BOOLEAN;
+	private RtBool(boolean val) {
+		super(RuntimeType.BOOLEAN);
 		this.val = val;
 	}
 
+	public static RtBool of(boolean val) {
+		return val ? TRUE : FALSE;
+	}
+
+	@Override
+	public void appendTo(Appendable out) throws IOException {
+		out.append(val ? "true" : "false");
+	}
+
 	@Override
 	public String toString() {
 		return val ? "true" : "false";
@@ -0,0 +1,33 @@
+package runtime;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public final class RtDouble extends RtNumber {
+
+	public final double val;
+
+	RtDouble(double val) {
+		this.val = val;
+	}
+
+	@Override
+	public long longValue() {
+		return (long) val;
+	}
+
+	@Override
+	public BigInteger bigValue() {
+		return new BigDecimal(val).toBigInteger();
+	}
+
+	@Override
+	public double doubleValue() {
+		return val;
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(val);
+	}
+}
@@ -0,0 +1,58 @@
+package runtime;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+public final class RtInt extends RtNumber {
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1024; // exclusive
+	private static final RtInt[] cache = new RtInt[CACHE_HIGH - CACHE_LOW];
+	static {
+		for (int i = 0; i < cache.length; i++)
+			cache[i] = new RtInt(i + CACHE_LOW);
+	}
+
+	public final int val;
+
+	private RtInt(int val) {
+		this.val = val;
+	}
+
+	/**
+	 * @return an RtInt holding val, shared for small values
+	 */
+	public static RtInt of(int val) {
+		if (val >= CACHE_LOW && val < CACHE_HIGH)
+			return cache[val - CACHE_LOW];
+		return new RtInt(val);
+	}
+
+	public int getValue() {
+		return this.val;
+	}
+
+	@Override
+	public long longValue() {
+		return val;
+	}
+
+	@Override
+	public BigInteger bigValue() {
+		return BigInteger.valueOf(val);
+	}
+
+	@Override
+	public double doubleValue() {
+		return val;
+	}
+
+	@Override
+	public void appendTo(Appendable out) throws IOException {
+		appendLong(out, val);
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(val);
+	}
+}
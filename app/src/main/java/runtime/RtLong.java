@@ -0,0 +1,41 @@
+package runtime;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+/**
+ * An integer that does not fit in an int
+ */
+public final class RtLong extends RtNumber {
+
+	public final long val;
+
+	RtLong(long val) {
+		this.val = val;
+	}
+
+	@Override
+	public long longValue() {
+		return val;
+	}
+
+	@Override
+	public BigInteger bigValue() {
+		return BigInteger.valueOf(val);
+	}
+
+	@Override
+	public double doubleValue() {
+		return val;
+	}
+
+	@Override
+	public void appendTo(Appendable out) throws IOException {
+		appendLong(out, val);
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(val);
+	}
+}
@@ -1,9 +1,18 @@
 package runtime;
 
+import java.io.IOException;
+
 public class RtNull extends RtVal {
 
-	public RtNull() {
-		this.type = RuntimeType.NULL;
+	public static final RtNull NULL = new RtNull();
+
+	private RtNull() {
+		super(RuntimeType.NULL);
+	}
+
+	@Override
+	public void appendTo(Appendable out) throws IOException {
+		out.append("null");
 	}
 
 	@Override
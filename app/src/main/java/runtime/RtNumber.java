@@ -1,15 +1,77 @@
 package runtime;
 
-public class RtNumber extends RtVal {
-	int val;
+import java.io.IOException;
+import java.math.BigInteger;
 
-	public RtNumber(int val) {
-		this.type = RuntimeType.NUMBER;
-		this.val = val;
+/**
+ * A number value. Numbers are stored in the cheapest form that holds them
+ * exactly: RtInt, then RtLong, then RtBigInt, and RtDouble for non-integers.
+ * The factories always narrow, so equal integers have the same form.
+ */
+public abstract class RtNumber extends RtVal {
+	private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+	private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+	RtNumber() {
+		super(RuntimeType.NUMBER);
+	}
+
+	/**
+	 * @return an RtInt holding val, shared for small values
+	 */
+	public static RtNumber of(int val) {
+		return RtInt.of(val);
+	}
+
+	public static RtNumber of(long val) {
+		return (int) val == val ? RtInt.of((int) val) : new RtLong(val);
+	}
+
+	public static RtNumber of(BigInteger val) {
+		if (val.compareTo(LONG_MIN) >= 0 && val.compareTo(LONG_MAX) <= 0)
+			return of(val.longValue());
+		return new RtBigInt(val);
 	}
 
-	@Override
-	public String toString() {
-		return String.valueOf(val);
+	public static RtNumber of(double val) {
+		return new RtDouble(val);
+	}
+
+	/**
+	 * @param literal digits, optionally followed by a '.' and more digits
+	 */
+	public static RtNumber parse(String literal) {
+		if (literal.indexOf('.') >= 0)
+			return of(Double.parseDouble(literal));
+		if (literal.length() < 10)
+			return of(Integer.parseInt(literal));
+		if (literal.length() < 19)
+			return of(Long.parseLong(literal));
+		return of(new BigInteger(literal));
+	}
+
+	/**
+	 * @return the value as a long, only exact for RtInt and RtLong
+	 */
+	public abstract long longValue();
+
+	/**
+	 * @return the value as a BigInteger, only exact for integers
+	 */
+	public abstract BigInteger bigValue();
+
+	public abstract double doubleValue();
+
+	/**
+	 * Writes the digits of v, straight into the buffer for an Output or
+	 * StringBuilder
+	 */
+	static void appendLong(Appendable out, long v) throws IOException {
+		if (out instanceof Output o)
+			o.append(v);
+		else if (out instanceof StringBuilder sb)
+			sb.append(v);
+		else
+			out.append(Long.toString(v));
 	}
 }
@@ -1,19 +1,96 @@
 package runtime;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 
+/**
+ * An object value. The keys live in the object's Shape, which is shared with
+ * every object that has the same keys unless the object has grown into a
+ * dictionary, and the values in an array indexed as the Shape says.
+ */
 public class RtObject extends RtVal {
 
-	public Map<String, RtVal> props;
+	Shape shape;
+	RtVal[] values;
+	boolean frozen; // read-only, set by Scope.freeze()
 
-	public RtObject(Map<String, RtVal> props) {
-		this.type = RuntimeType.OBJECT;
-		this.props = props;
+	public RtObject() {
+		this(Shape.EMPTY, new RtVal[0]);
+	}
+
+	/**
+	 * @param values the value of each of the shape's keys, by index
+	 */
+	public RtObject(Shape shape, RtVal[] values) {
+		super(RuntimeType.OBJECT);
+		this.shape = shape;
+		this.values = values;
+	}
+
+	public Shape getShape() {
+		return shape;
+	}
+
+	/**
+	 * @return the value of key, or null if the object doesn't have key
+	 */
+	public RtVal get(String key) {
+		int i = shape.indexOf(key);
+		return i < 0 ? null : values[i];
+	}
+
+	/**
+	 * Sets the value of key, adding it to the object if it doesn't have it yet.
+	 */
+	public void put(String key, RtVal val) {
+		if (frozen)
+			throw new RuntimeException("Cannot set key '" + key + "'. The object is read-only.");
+		int i = shape.indexOf(key);
+		if (i < 0) {
+			i = shape.size();
+			shape = shape.add(key);
+			if (i == values.length)
+				values = Arrays.copyOf(values, Math.max(4, i * 2));
+		}
+		values[i] = val;
+	}
+
+	/**
+	 * Makes this object and every object and array reachable from it read-only
+	 */
+	@Override
+	void freeze() {
+		if (frozen)
+			return; // also stops at cycles
+		frozen = true;
+		for (int i = 0; i < shape.size(); i++)
+			values[i].freeze();
+	}
+
+	@Override
+	public void appendTo(Appendable out) throws IOException {
+		// `{k=v, k=v}`, in the same order as when objects were backed by a HashMap
+		int[] order = shape.printOrder();
+		out.append('{');
+		for (int i = 0; i < order.length; i++) {
+			if (i > 0)
+				out.append(", ");
+			out.append(shape.key(order[i])).append('=');
+			values[order[i]].appendTo(out);
+		}
+		out.append('}');
 	}
 
 	@Override
 	public String toString() {
-		return props.toString();
+		StringBuilder sb = new StringBuilder();
+		try {
+			appendTo(sb);
+		} catch (IOException e) { // StringBuilder doesn't throw
+			throw new UncheckedIOException(e);
+		}
+		return sb.toString();
 	}
 
 }
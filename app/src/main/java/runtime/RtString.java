@@ -1,16 +1,139 @@
 package runtime;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A string value. Concatenating two long strings does not copy them: the
+ * result is a rope node pointing at both halves, which is only flattened into
+ * a single String when its characters are needed (printing, comparing). So a
+ * chain of n `+` costs O(n) node allocations plus one copy of the final
+ * string, rather than n copies of a growing string. A flattened node drops its
+ * halves, so the rope is not kept alive next to the String.
+ */
 public class RtString extends RtVal {
 
-  public String value;
+  // results shorter than this are copied straight away, a node would cost more
+  private static final int MIN_ROPE_LENGTH = 64;
+
+  private final int length;
+  // halves of an unflattened concatenation, null once flattened. Volatile: a
+  // thread that sees them dropped must also see the value set before that.
+  private volatile RtString left, right;
+  private volatile String value; // null until flattened
 
   public RtString(String value) {
-    this.type = RuntimeType.STRING;
+    super(RuntimeType.STRING);
+    this.length = value.length();
     this.value = value;
   }
 
+  private RtString(RtString left, RtString right) {
+    super(RuntimeType.STRING);
+    this.length = left.length + right.length;
+    this.left = left;
+    this.right = right;
+  }
+
+  /**
+   * @return `left + right`
+   */
+  public static RtString concat(RtString left, RtString right) {
+    if (left.length == 0)
+      return right;
+    if (right.length == 0)
+      return left;
+    if (left.length + right.length < MIN_ROPE_LENGTH)
+      return new RtString(left.getValue() + right.getValue());
+    if ((long) left.length + right.length > Integer.MAX_VALUE)
+      throw new RuntimeException("String is too long, cannot be longer than " + Integer.MAX_VALUE + " characters.");
+    return new RtString(left, right);
+  }
+
+  /**
+   * @return this string repeated `times` times, or an empty string if times is
+   *         not positive. Allocates only the result.
+   */
+  public RtString repeat(int times) {
+    if (times <= 0)
+      return new RtString("");
+    if ((long) length * times > Integer.MAX_VALUE)
+      throw new RuntimeException("String is too long, cannot be longer than " + Integer.MAX_VALUE + " characters.");
+    return new RtString(getValue().repeat(times));
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @return the characters of the string, flattening it first if required
+   */
+  public String getValue() {
+    String v = value;
+    if (v == null) {
+      v = flatten();
+      value = v;
+      left = null;
+      right = null;
+    }
+    return v;
+  }
+
+  /**
+   * Copies the leaves of the rope into one buffer, left to right. Uses an
+   * explicit stack, since a long chain of `+` builds a very deep tree.
+   */
+  private String flatten() {
+    StringBuilder sb = new StringBuilder(length);
+    Deque<RtString> pending = new ArrayDeque<>();
+    pending.push(this);
+    while (!pending.isEmpty()) {
+      String v = leaf(pending.pop(), pending);
+      if (v != null)
+        sb.append(v);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return the characters of node if it is a leaf or has been flattened,
+   *         otherwise null, having pushed its halves, left on top
+   */
+  private static String leaf(RtString node, Deque<RtString> pending) {
+    String v = node.value;
+    if (v != null)
+      return v;
+    RtString l = node.left, r = node.right;
+    if (l == null || r == null) // flattened by another thread meanwhile, which set value first
+      return node.value;
+    pending.push(r);
+    pending.push(l);
+    return null;
+  }
+
+  /**
+   * Writes the leaves of the rope in order, without flattening it
+   */
+  @Override
+  public void appendTo(Appendable out) throws IOException {
+    String v = value;
+    if (v != null) {
+      out.append(v);
+      return;
+    }
+    Deque<RtString> pending = new ArrayDeque<>();
+    pending.push(this);
+    while (!pending.isEmpty()) {
+      v = leaf(pending.pop(), pending);
+      if (v != null)
+        out.append(v);
+    }
+  }
+
   @Override
   public String toString() {
-    return value;
+    return getValue();
   }
 }
@@ -1,7 +1,36 @@
 package runtime;
 
+import java.io.IOException;
+
+/**
+ * Runtime values are immutable (apart from the properties of an RtObject), so
+ * the same instance can be shared by every place that produces that value.
+ */
 public abstract class RtVal {
-	RuntimeType type;
+	final RuntimeType type;
+
+	protected RtVal(RuntimeType type) {
+		this.type = type;
+	}
+
+	public RuntimeType getType() {
+		return this.type;
+	}
+
+	/**
+	 * Makes the value, and every value reachable from it, read-only. Only
+	 * objects and arrays can change, so only they have anything to do.
+	 */
+	void freeze() {
+	}
+
+	/**
+	 * Writes the value as print shows it, the same characters as toString(),
+	 * without building an intermediate String where the value can avoid it
+	 */
+	public void appendTo(Appendable out) throws IOException {
+		out.append(toString());
+	}
 
 	@Override
 	public abstract String toString();
@@ -8,6 +8,7 @@ package runtime;
 
 public enum RuntimeType {
   OBJECT,
+  ARRAY,
   NUMBER,
   STRING,
   BOOLEAN,
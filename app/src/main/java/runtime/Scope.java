@@ -2,10 +2,13 @@
  * Scope.java
  *
  * Stores the variables in the current scope, and allows variables in parent/ancestor scopes to be accessed/updated.
+ * Values live in an array, in declaration order, so code that has been through the Resolver can access them by
+ * (depth, slot) without looking the name up.
  */
 
 package runtime;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -14,36 +17,99 @@ import java.util.Set;
 public class Scope {
 
   Scope parent;
-  Map<String, RtVal> variables; // stores <varname, value> pairs
+  Map<String, Integer> slots; // stores <varname, index into values> pairs
+  RtVal[] values;
   Set<String> constants;
+  boolean frozen; // read-only, see freeze()
 
   public static Scope createGlobalScope() {
     Scope s = new Scope(null);
-    s.declareVar("null", new RtNull(), true);
-    s.declareVar("true", new RtBool(true), true);
-    s.declareVar("false", new RtBool(false), true);
+    s.declareVar("null", RtNull.NULL, true);
+    s.declareVar("true", RtBool.of(true), true);
+    s.declareVar("false", RtBool.of(false), true);
     return s;
   }
 
   public Scope(Scope parent) {
+    this(parent, 8);
+  }
+
+  /**
+   * @param capacity number of variables the scope can hold before it has to
+   *                 grow
+   */
+  Scope(Scope parent, int capacity) {
     this.parent = parent;
-    this.variables = new HashMap<>();
+    this.slots = HashMap.newHashMap(capacity);
+    this.values = new RtVal[Math.max(capacity, 1)];
     this.constants = new HashSet<>();
   }
 
   /**
-   * Declare a new variable with a given value.
+   * Makes this scope, and every object and array reachable from its variables,
+   * read-only, so it can be shared as the parent scope of programs running on
+   * different threads: lookups don't write anything, and declaring or
+   * assigning a variable here, or setting a key of one of its objects, throws.
+   *
+   * @return this scope
+   */
+  public Scope freeze() {
+    for (int i = 0; i < slots.size(); i++)
+      values[i].freeze();
+    frozen = true;
+    return this;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Declare a new variable with a given value, in the next free slot.
    * Throws a RuntimeError if the variable name is already used in this scope.
    */
   public void declareVar(String varname, RtVal val, boolean isConst) {
-    if (variables.containsKey(varname)) {
+    declareVar(varname, slots.size(), val, isConst);
+  }
+
+  /**
+   * Declare a new variable in the slot the Resolver gave it, for declarations
+   * the ParallelInterpreter makes out of order.
+   */
+  void declareVar(String varname, int slot, RtVal val, boolean isConst) {
+    if (slots.containsKey(varname)) {
       throw new RuntimeException(
           "Cannot declare variable " + varname
               + ". A variable with the same name already exists in this scope.");
     }
+    if (frozen)
+      throw new RuntimeException("Cannot declare variable " + varname + ". The scope is read-only.");
     if (isConst)
       constants.add(varname);
-    variables.put(varname, val);
+    if (slot >= values.length)
+      values = Arrays.copyOf(values, Math.max(slot + 1, values.length * 2));
+    slots.put(varname, slot);
+    values[slot] = val;
+  }
+
+  /**
+   * Undoes declareVar, for declarations the ParallelInterpreter made that a
+   * sequential run would not have reached
+   */
+  void removeVar(String varname) {
+    Integer slot = slots.remove(varname);
+    if (slot != null)
+      values[slot] = null;
+    constants.remove(varname);
+  }
+
+  /**
+   * Makes room for `capacity` variables, so values is not replaced while other
+   * threads read and write it
+   */
+  void reserve(int capacity) {
+    if (capacity > values.length)
+      values = Arrays.copyOf(values, capacity);
   }
 
   /**
@@ -59,12 +125,14 @@ public class Scope {
     if (constants.contains(varname)) {
       throw new RuntimeException("Cannot update variable " + varname + ". Declared as constant");
     }
-    env.variables.put(varname, val);
+    if (env.frozen)
+      throw new RuntimeException("Cannot update variable " + varname + ". Declared in a read-only scope.");
+    env.values[env.slots.get(varname)] = val;
     return val;
   }
 
   public RtVal assignVar(RtObject object, String key, RtVal val) {
-    object.props.put(key, val);
+    object.put(key, val);
     return val;
   }
 
@@ -74,16 +142,75 @@ public class Scope {
    */
   public RtVal getVar(String varname) {
     Scope env = getVarEnv(varname);
-    return env.variables.get(varname);
+    return env.values[env.slots.get(varname)];
   }
 
   public RtVal getVar(RtObject object, String key) {
-    if (object.props.containsKey(key))
-      return object.props.get(key);
+    RtVal val = object.get(key);
+    if (val != null)
+      return val;
     else
       throw new RuntimeException("Key '" + key + "' does not exist in object:\n" + object);
   }
 
+  /**
+   * Get the value of a variable from the position the Resolver gave it
+   *
+   * @param depth number of parents to go up to reach the variable's scope
+   * @param slot  index of the variable in that scope
+   */
+  public RtVal getSlot(int depth, int slot) {
+    return ancestor(depth).values[slot];
+  }
+
+  /**
+   * Update the value of a variable at the position the Resolver gave it. The
+   * Resolver has already checked the variable exists, is not constant and is
+   * not in a read-only scope.
+   */
+  public RtVal assignSlot(int depth, int slot, RtVal val) {
+    ancestor(depth).values[slot] = val;
+    return val;
+  }
+
+  /**
+   * @returns the slot holding varname in this scope (ancestors are not searched)
+   * @returns -1 if varname is not declared in this scope
+   */
+  public int slotOf(String varname) {
+    Integer slot = slots.get(varname);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * @returns the number of variables declared in this scope, which is also the
+   *          slot the next declaration will get
+   */
+  public int size() {
+    return slots.size();
+  }
+
+  /**
+   * @returns the number of parents getVarEnv walks up to find varname
+   * @returns -1 if varname not found in any ancestor scope
+   */
+  public int depthOf(String varname) {
+    Scope curr = this;
+    for (int depth = 0; curr != null; depth++) {
+      if (curr.slots.containsKey(varname))
+        return depth;
+      curr = curr.parent;
+    }
+    return -1;
+  }
+
+  private Scope ancestor(int depth) {
+    Scope curr = this;
+    for (int i = 0; i < depth; i++)
+      curr = curr.parent;
+    return curr;
+  }
+
   /**
    * @returns the closest scope that contains a variable with the given name
    * @returns null if varname not found in any ancestor scope
@@ -91,7 +218,7 @@ public class Scope {
   public Scope getVarEnv(String varname) {
     Scope curr = this;
     while (curr != null) {
-      if (curr.variables.containsKey(varname)) {
+      if (curr.slots.containsKey(varname)) {
         return curr;
       }
       curr = curr.parent;
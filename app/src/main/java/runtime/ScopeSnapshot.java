@@ -0,0 +1,367 @@
+package runtime;
+
+/**
+ * ScopeSnapshot.java
+ *
+ * Reads and writes a Scope, its ancestors and every value reachable from
+ * them in a compact binary form (.kats files), so a session can start from
+ * the globals a prelude script built without running it again.
+ *
+ * Objects and arrays are written once each, however many variables, keys
+ * and elements refer to them, and refer to each other by index, so shared
+ * objects stay shared and cycles are kept.
+ *
+ * Layout:
+ * "KATS" magic, u16 version
+ * constant pool: varint count, then each string as varint length + UTF-8 bytes
+ * objects and arrays: varint count, then each one's u8 kind and layout: an
+ * object's keys (varint count + pool indexes), a packed array's varint length
+ * and ints, a mixed array's varint length. Then the values of each object in
+ * key order and the elements of each mixed array.
+ * scopes: varint count, outermost first, each as u8 frozen flag, varint
+ * variable count, then each variable in slot order as pool index, u8 const
+ * flag and value
+ * A value is a u8 tag, then an int, long, double, pool index, object index
+ * or, for a big integer, varint length + two's-complement bytes.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ScopeSnapshot {
+
+  private static final byte[] MAGIC = { 'K', 'A', 'T', 'S' };
+  // bump whenever the layout changes
+  private static final int VERSION = 2;
+
+  private static final int NULL = 0;
+  private static final int TRUE = 1;
+  private static final int FALSE = 2;
+  private static final int INT = 3;
+  private static final int LONG = 4;
+  private static final int BIG = 5;
+  private static final int DOUBLE = 6;
+  private static final int STRING = 7;
+  private static final int OBJECT = 8; // an object or array, by index
+
+  // kinds of the entries of the object table
+  private static final int KIND_OBJECT = 0;
+  private static final int KIND_PACKED_ARRAY = 1;
+  private static final int KIND_MIXED_ARRAY = 2;
+
+  /**
+   * Writes the scope and its ancestors in .kats form.
+   */
+  public static void write(Scope scope, OutputStream out) throws IOException {
+    List<Scope> chain = new ArrayList<>();
+    for (Scope s = scope; s != null; s = s.parent)
+      chain.add(0, s);
+
+    Writer w = new Writer();
+    for (Scope s : chain) {
+      for (int i = 0; i < s.size(); i++)
+        w.collect(s.values[i]);
+    }
+    w.writeObjects();
+    writeVarInt(w.out, chain.size());
+    for (Scope s : chain) {
+      w.out.writeBoolean(s.frozen);
+      String[] names = new String[s.size()];
+      for (Map.Entry<String, Integer> e : s.slots.entrySet())
+        names[e.getValue()] = e.getKey();
+      writeVarInt(w.out, names.length);
+      for (int i = 0; i < names.length; i++) {
+        w.writeString(names[i]);
+        w.out.writeBoolean(s.constants.contains(names[i]));
+        w.writeValue(s.values[i]);
+      }
+    }
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.write(MAGIC);
+    data.writeShort(VERSION);
+    writeVarInt(data, w.pool.size());
+    for (String s : w.pool.keySet()) {
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(data, utf8.length);
+      data.write(utf8);
+    }
+    w.body.writeTo(data);
+    data.flush();
+  }
+
+  /**
+   * Reads a snapshot from the bytes of a .kats file.
+   *
+   * @return the innermost scope, with its ancestors as parents
+   */
+  public static Scope read(ByteBuffer in) {
+    try {
+      for (byte b : MAGIC) {
+        if (in.get() != b)
+          throw new RuntimeException("Not a kitkat scope snapshot (bad magic number).");
+      }
+      int version = in.getShort();
+      if (version != VERSION) {
+        throw new RuntimeException(
+            "Snapshot has version " + version + ", expected " + VERSION + ". Save it again.");
+      }
+      String[] pool = new String[readVarInt(in)];
+      for (int i = 0; i < pool.length; i++)
+        pool[i] = readUtf8(in, readVarInt(in));
+      Reader r = new Reader(in, pool);
+      r.readObjects();
+
+      Scope scope = null;
+      int scopes = readVarInt(in);
+      for (int i = 0; i < scopes; i++) {
+        boolean frozen = in.get() != 0;
+        int variables = readVarInt(in);
+        scope = new Scope(scope, variables);
+        for (int v = 0; v < variables; v++) {
+          String name = r.readString();
+          boolean isConst = in.get() != 0;
+          scope.declareVar(name, r.readValue(), isConst);
+        }
+        if (frozen)
+          scope.freeze();
+      }
+      if (scope == null)
+        throw new RuntimeException("Snapshot is corrupt, it has no scopes.");
+      return scope;
+    } catch (BufferUnderflowException e) {
+      throw new RuntimeException("Snapshot is truncated.");
+    }
+  }
+
+  /**
+   * Numbers the objects first, so they can be written before the scopes that
+   * refer to them, and collects strings into the pool as it goes, since the
+   * pool has to be written first.
+   */
+  private static class Writer {
+    final Map<String, Integer> pool = new LinkedHashMap<>();
+    final Map<RtVal, Integer> objectIndexes = new IdentityHashMap<>();
+    final List<RtVal> objects = new ArrayList<>(); // RtObjects and RtArrays
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(body);
+
+    /**
+     * Numbers every object and array reachable from val not numbered yet,
+     * breadth first, so deep nesting doesn't recurse
+     */
+    void collect(RtVal val) {
+      if (!isContainer(val) || objectIndexes.containsKey(val))
+        return;
+      int next = objects.size();
+      objectIndexes.put(val, next);
+      objects.add(val);
+      for (; next < objects.size(); next++) {
+        RtVal[] children;
+        int count;
+        if (objects.get(next) instanceof RtObject o) {
+          children = o.values;
+          count = o.shape.size();
+        } else {
+          RtArray a = (RtArray) objects.get(next);
+          children = a.values; // null if packed, no children
+          count = a.values == null ? 0 : a.length;
+        }
+        for (int i = 0; i < count; i++) {
+          if (isContainer(children[i]) && !objectIndexes.containsKey(children[i])) {
+            objectIndexes.put(children[i], objects.size());
+            objects.add(children[i]);
+          }
+        }
+      }
+    }
+
+    private static boolean isContainer(RtVal val) {
+      return val instanceof RtObject || val instanceof RtArray;
+    }
+
+    void writeObjects() throws IOException {
+      writeVarInt(out, objects.size());
+      for (RtVal val : objects) {
+        if (val instanceof RtObject o) {
+          out.writeByte(KIND_OBJECT);
+          writeVarInt(out, o.shape.size());
+          for (int i = 0; i < o.shape.size(); i++)
+            writeString(o.shape.key(i));
+        } else {
+          RtArray a = (RtArray) val;
+          out.writeByte(a.ints != null ? KIND_PACKED_ARRAY : KIND_MIXED_ARRAY);
+          writeVarInt(out, a.length);
+          if (a.ints != null) {
+            for (int i = 0; i < a.length; i++)
+              out.writeInt(a.ints[i]);
+          }
+        }
+      }
+      for (RtVal val : objects) {
+        if (val instanceof RtObject o) {
+          for (int i = 0; i < o.shape.size(); i++)
+            writeValue(o.values[i]);
+        } else if (((RtArray) val).values != null) {
+          RtArray a = (RtArray) val;
+          for (int i = 0; i < a.length; i++)
+            writeValue(a.values[i]);
+        }
+      }
+    }
+
+    void writeString(String s) throws IOException {
+      Integer idx = pool.get(s);
+      if (idx == null) {
+        idx = pool.size();
+        pool.put(s, idx);
+      }
+      writeVarInt(out, idx);
+    }
+
+    void writeValue(RtVal val) throws IOException {
+      if (val instanceof RtInt i) {
+        out.writeByte(INT);
+        out.writeInt(i.val);
+      } else if (val instanceof RtString s) {
+        out.writeByte(STRING);
+        writeString(s.getValue());
+      } else if (isContainer(val)) {
+        out.writeByte(OBJECT);
+        writeVarInt(out, objectIndexes.get(val));
+      } else if (val instanceof RtBool b) {
+        out.writeByte(b.val ? TRUE : FALSE);
+      } else if (val instanceof RtLong l) {
+        out.writeByte(LONG);
+        out.writeLong(l.val);
+      } else if (val instanceof RtDouble d) {
+        out.writeByte(DOUBLE);
+        out.writeDouble(d.val);
+      } else if (val instanceof RtBigInt b) {
+        byte[] bytes = b.bigValue().toByteArray();
+        out.writeByte(BIG);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+      } else if (val == RtNull.NULL) {
+        out.writeByte(NULL);
+      } else {
+        throw new RuntimeException("Cannot snapshot value of type " + val.getType());
+      }
+    }
+  }
+
+  private static class Reader {
+    final ByteBuffer in;
+    final String[] pool;
+    RtVal[] objects; // RtObjects and RtArrays
+
+    Reader(ByteBuffer in, String[] pool) {
+      this.in = in;
+      this.pool = pool;
+    }
+
+    String readString() {
+      return pool[readVarInt(in)];
+    }
+
+    /**
+     * Creates every object and array with its layout first, then fills in the
+     * values, so values can refer to any object or array
+     */
+    void readObjects() {
+      objects = new RtVal[readVarInt(in)];
+      for (int i = 0; i < objects.length; i++) {
+        int kind = in.get();
+        switch (kind) {
+          case KIND_OBJECT -> {
+            String[] keys = new String[readVarInt(in)];
+            for (int k = 0; k < keys.length; k++)
+              keys[k] = readString();
+            objects[i] = new RtObject(Shape.of(keys, 0, keys.length), new RtVal[keys.length]);
+          }
+          case KIND_PACKED_ARRAY -> {
+            int[] ints = new int[readVarInt(in)];
+            for (int k = 0; k < ints.length; k++)
+              ints[k] = in.getInt();
+            objects[i] = RtArray.of(ints);
+          }
+          case KIND_MIXED_ARRAY -> objects[i] = RtArray.of(new RtVal[readVarInt(in)]);
+          default -> throw new RuntimeException("Snapshot is corrupt, unknown object kind: " + kind);
+        }
+      }
+      for (RtVal val : objects) {
+        RtVal[] values = val instanceof RtObject o ? o.values : ((RtArray) val).values;
+        if (values == null)
+          continue; // packed, already read
+        for (int k = 0; k < values.length; k++)
+          values[k] = readValue();
+      }
+    }
+
+    RtVal readValue() {
+      int tag = in.get();
+      return switch (tag) {
+        case NULL -> RtNull.NULL;
+        case TRUE -> RtBool.TRUE;
+        case FALSE -> RtBool.FALSE;
+        case INT -> RtNumber.of(in.getInt());
+        case LONG -> RtNumber.of(in.getLong());
+        case DOUBLE -> RtNumber.of(in.getDouble());
+        case BIG -> {
+          byte[] bytes = new byte[readVarInt(in)];
+          in.get(bytes);
+          yield RtNumber.of(new BigInteger(bytes));
+        }
+        case STRING -> new RtString(readString());
+        case OBJECT -> {
+          int i = readVarInt(in);
+          if (i >= objects.length)
+            throw new RuntimeException("Snapshot is corrupt, unknown object: " + i);
+          yield objects[i];
+        }
+        default -> throw new RuntimeException("Snapshot is corrupt, unknown value tag: " + tag);
+      };
+    }
+  }
+
+  private static String readUtf8(ByteBuffer in, int len) {
+    if (in.hasArray()) { // decode in place
+      String s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+      in.position(in.position() + len);
+      return s;
+    }
+    byte[] utf8 = new byte[len];
+    in.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+    while ((v & ~0x7F) != 0) {
+      out.writeByte((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    out.writeByte(v);
+  }
+
+  private static int readVarInt(ByteBuffer in) {
+    int v = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = in.get();
+      v |= (b & 0x7F) << shift;
+      if (b >= 0)
+        return v;
+    }
+    throw new RuntimeException("Snapshot is corrupt, malformed varint.");
+  }
+}
@@ -0,0 +1,36 @@
+package runtime;
+
+import frontend.ast.LineTable;
+
+/**
+ * ScriptError.java
+ *
+ * An error thrown while running a program, with the position in the source of
+ * the top-level statement that was running when it was thrown. The original
+ * exception is kept as the cause.
+ */
+public class ScriptError extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public final int line;
+  public final int column;
+
+  private ScriptError(RuntimeException cause, int line, int column) {
+    super(cause.getMessage() + " (line " + line + ", column " + column + ")", cause);
+    this.line = line;
+    this.column = column;
+  }
+
+  /**
+   * @param position source offset of the statement that failed, -1 if unknown
+   * @param lines    line table of the program, null if unknown
+   * @return e with the statement's position attached, or e itself if it already
+   *         has one or the position is unknown
+   */
+  public static RuntimeException at(RuntimeException e, int position, LineTable lines) {
+    if (e instanceof ScriptError || position < 0 || lines == null)
+      return e;
+    return new ScriptError(e, lines.line(position), lines.column(position));
+  }
+}
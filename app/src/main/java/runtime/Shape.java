@@ -0,0 +1,221 @@
+/**
+ * Shape.java
+ *
+ * The layout (hidden class) of an RtObject: which keys it has and the index of each key's value in the object's
+ * value array. Shapes are shared, every object that gained the same keys in the same order has the same Shape, so
+ * a single identity check tells whether an object is laid out like one seen before.
+ *
+ * Shapes form a tree rooted at EMPTY. Adding a key to an object moves it along a transition to the child shape,
+ * which is created the first time that key is added to an object of this shape and reused from then on.
+ *
+ * A shape and the first child made from it share one key table: the child appends its key, and the parent only
+ * looks at the keys it has. Later children, branches of the tree, copy the table. So a chain of n shapes holds n
+ * keys, not n^2. Objects created with more than MAX_SHARED_KEYS keys at once, which are maps rather than records,
+ * get a shape of their own instead, built in one pass.
+ *
+ * An object that grows past MAX_SHARED_KEYS keys, or adds a key to a shape that already has MAX_TRANSITIONS
+ * children, switches to a dictionary shape: one of its own, outside the tree, that later keys are added to in place.
+ * Keys computed at run time (`o[k] = v`) then can't grow the tree, which lives as long as EMPTY does, without bound.
+ */
+
+package runtime;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class Shape {
+
+  public static final Shape EMPTY = new Shape(new Keys(new String[0], 0, new ConcurrentHashMap<>()), 0);
+  static final int MAX_SHARED_KEYS = 64;
+  static final int MAX_TRANSITIONS = 64;
+
+  /**
+   * Keys shared by a chain of shapes, each with one key more than the one
+   * before. Only the last shape of the chain adds to it.
+   */
+  private static final class Keys {
+    String[] keys; // keys[i] is stored at index i
+    int used; // keys in the table, guarded by the table unless it belongs to a dictionary
+    final Map<String, Integer> indexes; // may hold keys a shape doesn't have, at indexes past its size
+
+    Keys(String[] keys, int used, Map<String, Integer> indexes) {
+      this.keys = keys;
+      this.used = used;
+      this.indexes = indexes;
+    }
+  }
+
+  private final Keys table;
+  private final String[] keys; // the table's array when this shape was made, a dictionary reads the table's instead
+  private final int size; // keys of this shape, the first ones of the table; a dictionary's is table.used
+  private final Map<String, Shape> transitions; // null for a dictionary
+  private volatile int[] printOrder; // computed on first print
+
+  private Shape(Keys table, int size) {
+    this.table = table;
+    this.keys = table.keys;
+    this.size = size;
+    this.transitions = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * A dictionary shape, holding table's keys
+   */
+  private Shape(Keys table) {
+    this.table = table;
+    this.keys = null;
+    this.size = -1;
+    this.transitions = null;
+  }
+
+  /**
+   * @return the shape of an object with keys[from, to), in that order. The
+   *         keys must all be different.
+   */
+  public static Shape of(String[] keys, int from, int to) {
+    if (to - from <= MAX_SHARED_KEYS) {
+      Shape shape = EMPTY;
+      for (int i = from; i < to; i++)
+        shape = shape.with(keys[i]);
+      return shape;
+    }
+    String[] own = Arrays.copyOfRange(keys, from, to);
+    Map<String, Integer> indexes = new ConcurrentHashMap<>(own.length);
+    for (int i = 0; i < own.length; i++)
+      indexes.put(own[i], i);
+    return new Shape(new Keys(own, own.length, indexes), own.length);
+  }
+
+  /**
+   * @return the shape of an object with this shape once key has been added to
+   *         it. key must not already be in this shape, which must not be a
+   *         dictionary.
+   */
+  public Shape with(String key) {
+    Shape next = transitions.get(key);
+    return next != null ? next : transitions.computeIfAbsent(key, this::extend);
+  }
+
+  private Shape extend(String key) {
+    synchronized (table) {
+      if (table.used == size) { // the first child, it can share the table
+        if (size == table.keys.length)
+          table.keys = Arrays.copyOf(table.keys, Math.max(4, size * 2));
+        table.keys[size] = key;
+        table.indexes.put(key, size);
+        table.used++;
+        return new Shape(table, size + 1);
+      }
+    }
+    String[] nextKeys = Arrays.copyOf(keys, size + 1);
+    nextKeys[size] = key;
+    Map<String, Integer> nextIndexes = new ConcurrentHashMap<>(size + 1);
+    for (int i = 0; i <= size; i++)
+      nextIndexes.put(nextKeys[i], i);
+    return new Shape(new Keys(nextKeys, size + 1, nextIndexes), size + 1);
+  }
+
+  /**
+   * @return the shape the object with this shape has once key has been added
+   *         to it: a shared one from the tree, or a dictionary, which is only
+   *         ever the shape of one object and is changed in place. key must not
+   *         already be in this shape.
+   */
+  Shape add(String key) {
+    if (transitions != null) {
+      if (size < MAX_SHARED_KEYS && (transitions.size() < MAX_TRANSITIONS || transitions.containsKey(key)))
+        return with(key);
+      String[] own = new String[Math.max(4, size * 2)];
+      System.arraycopy(keys, 0, own, 0, size);
+      Map<String, Integer> indexes = HashMap.newHashMap(own.length);
+      for (int i = 0; i < size; i++)
+        indexes.put(own[i], i);
+      return new Shape(new Keys(own, size, indexes)).add(key);
+    }
+    int n = table.used;
+    if (n == table.keys.length)
+      table.keys = Arrays.copyOf(table.keys, n * 2);
+    table.keys[n] = key;
+    table.indexes.put(key, n);
+    table.used++;
+    printOrder = null;
+    return this;
+  }
+
+  /**
+   * @return the index of key's value in objects of this shape, or -1 if
+   *         objects of this shape don't have key
+   */
+  public int indexOf(String key) {
+    Integer i = table.indexes.get(key);
+    return i == null || i >= size() ? -1 : i;
+  }
+
+  public int size() {
+    return transitions != null ? size : table.used;
+  }
+
+  public String key(int index) {
+    return (transitions != null ? keys : table.keys)[index];
+  }
+
+  /**
+   * @return the indexes of the keys in the order objects of this shape print
+   *         them: the iteration order of a HashMap holding the keys, which is
+   *         how objects were stored and printed before they had shapes
+   */
+  int[] printOrder() {
+    int[] order = printOrder;
+    if (order == null) {
+      Map<String, Integer> m = new HashMap<>();
+      for (int i = 0; i < size(); i++)
+        m.put(key(i), i);
+      order = m.values().stream().mapToInt(Integer::intValue).toArray();
+      printOrder = order;
+    }
+    return order;
+  }
+
+  /**
+   * The shape of the objects an object literal creates, and where each of its
+   * properties goes. A key given twice is stored once, the last value wins.
+   */
+  public record Literal(Shape shape, int[] indexes) {
+
+    public static Literal of(String[] keys) {
+      if (keys.length > MAX_SHARED_KEYS) {
+        Map<String, Integer> first = HashMap.newHashMap(keys.length);
+        String[] distinct = new String[keys.length];
+        int[] indexes = new int[keys.length];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+          Integer index = first.putIfAbsent(keys[i], n);
+          if (index == null) {
+            distinct[n] = keys[i];
+            index = n++;
+          }
+          indexes[i] = index;
+        }
+        return new Literal(Shape.of(distinct, 0, n), indexes);
+      }
+      Shape shape = EMPTY;
+      int[] indexes = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        int index = shape.indexOf(keys[i]);
+        if (index < 0) {
+          index = shape.size();
+          shape = shape.with(keys[i]);
+        }
+        indexes[i] = index;
+      }
+      return new Literal(shape, indexes);
+    }
+
+    @Override
+    public String toString() {
+      return String.join(", ", Arrays.copyOf(shape.keys, shape.size));
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package vm;
+
+/**
+ * VirtualMachine.java
+ *
+ * Runs compiled Chunks on an operand stack. An alternative to the
+ * tree-walking Interpreter which gives the same results, but dispatches on a
+ * flat int[] of instructions instead of recursing through the AST.
+ */
+
+import java.util.Arrays;
+
+import compiler.Chunk;
+import compiler.Compiler;
+import compiler.OpCode;
+import frontend.ast.Program;
+import runtime.Arithmetic;
+import runtime.ExecutionEngine;
+import runtime.InlineCache;
+import runtime.Operators;
+import runtime.Output;
+import runtime.RtArray;
+import runtime.RtBool;
+import runtime.RtNull;
+import runtime.RtInt;
+import runtime.RtNumber;
+import runtime.RtObject;
+import runtime.RtVal;
+import runtime.Scope;
+import runtime.Shape;
+
+public class VirtualMachine implements ExecutionEngine {
+
+  private final Output out; // where print statements write
+
+  public VirtualMachine() {
+    this(Output.stdout());
+  }
+
+  public VirtualMachine(Output out) {
+    this.out = out;
+  }
+
+  @Override
+  public RtVal execute(Program program, Scope scope) {
+    return run(Compiler.compile(program), scope);
+  }
+
+  /**
+   * Runs the chunk in the given scope
+   *
+   * @return the value of the last statement, or null for an empty chunk
+   */
+  public RtVal run(Chunk chunk, Scope scope) {
+    final int[] code = chunk.code;
+    final Object[] constants = chunk.constants;
+    final RtVal[] stack = new RtVal[chunk.maxStack];
+    int sp = 0; // next free stack slot
+    int pc = 0;
+    RtVal result = RtNull.NULL;
+
+    try {
+      while (pc < code.length) {
+        int op = code[pc++];
+        switch (op) {
+          case OpCode.CONST -> stack[sp++] = (RtVal) constants[code[pc++]];
+          case OpCode.LOAD -> stack[sp++] = scope.getVar((String) constants[code[pc++]]);
+          case OpCode.STORE -> stack[sp - 1] = scope.assignVar((String) constants[code[pc++]], stack[sp - 1]);
+          case OpCode.DECLARE, OpCode.DECLARE_CONST -> {
+            scope.declareVar((String) constants[code[pc++]], stack[sp - 1], op == OpCode.DECLARE_CONST);
+            stack[sp - 1] = RtNull.NULL;
+          }
+          case OpCode.NEW_OBJECT -> {
+            Shape.Literal literal = (Shape.Literal) constants[code[pc++]];
+            int[] indexes = literal.indexes();
+            sp -= indexes.length;
+            RtVal[] values = new RtVal[literal.shape().size()];
+            for (int i = 0; i < indexes.length; i++) {
+              values[indexes[i]] = stack[sp + i];
+            }
+            stack[sp++] = new RtObject(literal.shape(), values);
+          }
+          case OpCode.GET_MEMBER -> stack[sp - 1] = ((InlineCache) constants[code[pc++]]).get((RtObject) stack[sp - 1]);
+          case OpCode.SET_MEMBER -> {
+            RtVal val = stack[--sp];
+            stack[sp - 1] = ((InlineCache) constants[code[pc++]]).set((RtObject) stack[sp - 1], val);
+          }
+          case OpCode.ADD, OpCode.SUB, OpCode.MUL, OpCode.DIV, OpCode.MOD -> {
+            RtVal r = stack[--sp];
+            RtVal l = stack[sp - 1];
+            stack[sp - 1] = l instanceof RtInt ln && r instanceof RtInt rn
+                ? arithmetic(op, ln.val, rn.val)
+                : Operators.binary(l, r, OpCode.symbol(op));
+          }
+          case OpCode.EQ, OpCode.NE, OpCode.GT, OpCode.LT, OpCode.GE, OpCode.LE -> {
+            RtVal r = stack[--sp];
+            RtVal l = stack[sp - 1];
+            stack[sp - 1] = l instanceof RtInt ln && r instanceof RtInt rn
+                ? RtBool.of(compare(op, ln.val, rn.val))
+                : Operators.compare(l, r, OpCode.symbol(op));
+          }
+          case OpCode.PRINT -> {
+            out.println(stack[sp - 1]);
+            stack[sp - 1] = RtNull.NULL;
+          }
+          case OpCode.RESULT -> result = stack[--sp];
+          case OpCode.FAIL -> throw new RuntimeException((String) constants[code[pc++]]);
+          case OpCode.NEW_ARRAY -> {
+            int length = (Integer) constants[code[pc++]];
+            sp -= length;
+            stack[sp] = RtArray.of(Arrays.copyOfRange(stack, sp, sp + length));
+            sp++;
+          }
+          case OpCode.GET_INDEX -> {
+            RtVal index = stack[--sp];
+            RtVal target = stack[sp - 1];
+            stack[sp - 1] = target instanceof RtArray a && index instanceof RtInt i
+                ? a.get(i.val)
+                : Operators.index(target, index);
+          }
+          case OpCode.SET_INDEX -> {
+            RtVal val = stack[--sp];
+            RtVal index = stack[--sp];
+            stack[sp - 1] = Operators.assignIndex(stack[sp - 1], index, val);
+          }
+          default -> throw new RuntimeException("Corrupt bytecode, unknown instruction " + op + " at " + (pc - 1));
+        }
+      }
+    } catch (RuntimeException e) {
+      throw chunk.locate(e, pc - 1); // pc is past the failing instruction, still inside its statement
+    }
+    return result;
+  }
+
+  private static RtNumber arithmetic(int op, int l, int r) {
+    return switch (op) {
+      case OpCode.ADD -> Arithmetic.add(l, r);
+      case OpCode.SUB -> Arithmetic.subtract(l, r);
+      case OpCode.MUL -> Arithmetic.multiply(l, r);
+      case OpCode.DIV -> Arithmetic.divide(l, r);
+      default -> Arithmetic.modulo(l, r);
+    };
+  }
+
+  private static boolean compare(int op, int l, int r) {
+    return switch (op) {
+      case OpCode.EQ -> l == r;
+      case OpCode.NE -> l != r;
+      case OpCode.GT -> l > r;
+      case OpCode.LT -> l < r;
+      case OpCode.GE -> l >= r;
+      default -> l <= r;
+    };
+  }
+}
@@ -0,0 +1,277 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import closure.ClosureCompiler;
+import frontend.Parser;
+import frontend.ast.Program;
+import optimizer.Optimizer;
+import runtime.ExecutionEngine;
+import runtime.Interpreter;
+import runtime.Output;
+import runtime.ParallelInterpreter;
+import runtime.Scope;
+import vm.VirtualMachine;
+
+/**
+ * ConformanceTest.java
+ *
+ * Runs every script below on each engine, and on the tree Interpreter after
+ * the Optimizer, and checks that they print the same text and fail with the
+ * same error as the tree Interpreter does on the unoptimised program, leaving
+ * the same variables behind when they fail.
+ */
+@Timeout(10) // an engine that deadlocks fails rather than hangs the build
+class ConformanceTest {
+
+  private static final ForkJoinPool pool = new ForkJoinPool(4); // more than one thread even on a single core
+
+  private static final Map<String, Function<Output, ExecutionEngine>> engines = new LinkedHashMap<>();
+  private static final Map<String, String> scripts = new LinkedHashMap<>();
+
+  static {
+    engines.put("vm", VirtualMachine::new);
+    engines.put("closure", ClosureCompiler::new);
+    engines.put("parallel", out -> new ParallelInterpreter(out, pool));
+
+    scripts.put("arithmetic", """
+        let a = 7;
+        let b = 2;
+        print(a + b * 3 - (a - b));
+        print(a / b);
+        print(a % b);
+        print(0.5 + a);
+        print(a - 10 * b);
+        """);
+    scripts.put("number tower", """
+        let big = 2147483647;
+        print(big + 1);
+        print(big * big);
+        print(big * big * big * big);
+        print(big * big * big * big - big * big * big * big);
+        print(0 - 2147483648 - 1);
+        print(1.5 * 2);
+        """);
+    scripts.put("literal operands", """
+        print(1 + 2);
+        print(7 - 9);
+        print(6 * 7);
+        print(7 / 2);
+        print(7 % 3);
+        print(2147483647 + 1);
+        print("kit" + "kat");
+        print(1 < 2);
+        print(2 == 2);
+        print("a" != "b");
+        """);
+    scripts.put("strings", """
+        let s = "kit";
+        let t = s + "kat";
+        print(t);
+        print(t + t + t);
+        print(t == "kitkat");
+        print(s < t);
+        print(s + 1);
+        """);
+    scripts.put("comparisons", """
+        let x = 3;
+        print(x < 4);
+        print(x >= 4);
+        print(x == 3);
+        print(x != 3.0);
+        print(null == null);
+        print(true == false);
+        """);
+    scripts.put("variables", """
+        let x = 1;
+        const y = 2;
+        x = x + y;
+        print(x);
+        x = (x = 10) + 1;
+        print(x);
+        let z = x = 4;
+        print(z);
+        print(x);
+        """);
+    scripts.put("objects", """
+        let o = { a: 1, b: { c: 2, }, };
+        print(o);
+        print(o.b.c);
+        o.a = o.b.c + 1;
+        o.d = "new";
+        print(o);
+        let p = o.b;
+        p.c = 5;
+        print(o.b.c);
+        print(o["a"]);
+        o["e"] = o;
+        print(o.e.a);
+        """);
+    scripts.put("arrays", """
+        let a = [1, 2, 3];
+        print(a);
+        print(a[0] + a[2]);
+        a[1] = 20;
+        a[3] = 4;
+        print(a);
+        a[0] = "mixed";
+        print(a);
+        let nested = [a, [5, [6, ], ], { k: a, }, ];
+        nested[1][1][0] = 7;
+        print(nested);
+        let b = a;
+        b[2] = null;
+        print(a);
+        print([]);
+        """);
+    scripts.put("independent statements", """
+        let a = 1;
+        let b = 2;
+        let c = { v: 3, };
+        let d = [4, 5];
+        print(a);
+        print(b);
+        a = a + 10;
+        c.v = b;
+        d[0] = a;
+        print(c);
+        print(d);
+        let e = c;
+        e.v = 30;
+        print(c.v);
+        print(a + b);
+        """);
+    scripts.put("place written twice by one statement", """
+        let a = 1;
+        a = (a = 2);
+        print(a);
+        let o = { x: 1, y: 2, };
+        o.x = (o.y = 1);
+        print(o);
+        let b = [1, 2];
+        b[0] = (b[1] = 3);
+        print(b);
+        """);
+    scripts.put("undefined variable", """
+        print(1);
+        print(missing);
+        print(2);
+        """);
+    scripts.put("const assignment", """
+        const c = 1;
+        print(c);
+        c = 2;
+        print(c);
+        """);
+    scripts.put("redeclaration", """
+        let a = 1;
+        print(a);
+        let a = 2;
+        print(a);
+        """);
+    scripts.put("type error", """
+        let a = 1;
+        print(a);
+        print(a > "s");
+        print(2);
+        """);
+    scripts.put("changes after a failure", """
+        let a = 1;
+        let o = { x: 1, };
+        let r = [1, 2];
+        print(1 > "s");
+        a = 5;
+        o.x = 2;
+        r[0] = 3;
+        let b = a;
+        print(a);
+        """);
+    scripts.put("division by zero", """
+        let a = 0;
+        print(1);
+        print(5 / a);
+        """);
+    scripts.put("literal division by zero", """
+        print(6 / 3);
+        print(7 / 0);
+        """);
+    scripts.put("missing key", """
+        let o = { a: 1, };
+        print(o.a);
+        print(o.b);
+        """);
+    scripts.put("member of non-object", """
+        let n = 1;
+        print(n.a);
+        """);
+    scripts.put("index out of bounds", """
+        let a = [1, 2];
+        a[2] = 3;
+        print(a);
+        print(a[5]);
+        """);
+    scripts.put("bad index", """
+        let a = [1, 2];
+        let o = { k: 1, };
+        print(o["k"]);
+        print(a["k"]);
+        """);
+  }
+
+  static Stream<String> scripts() {
+    return scripts.keySet().stream();
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("scripts")
+  void optimizedMatchesTree(String name) {
+    String expected = run(name, Interpreter::new, false);
+    assertEquals(expected, run(name, Interpreter::new, true), "optimised tree differs");
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("scripts")
+  void enginesMatchTree(String name) {
+    String expected = run(name, Interpreter::new, false);
+    for (Map.Entry<String, Function<Output, ExecutionEngine>> e : engines.entrySet()) {
+      assertEquals(expected, run(name, e.getValue(), false), e.getKey() + " differs");
+      assertEquals(expected, run(name, e.getValue(), true), "optimised " + e.getKey() + " differs");
+    }
+  }
+
+  /**
+   * @return what the script printed, then the error it failed with and the
+   *         variables it left, if it failed
+   */
+  private static String run(String name, Function<Output, ExecutionEngine> engine, boolean optimize) {
+    StringWriter printed = new StringWriter();
+    Output out = new Output(printed);
+    Scope scope = Scope.createGlobalScope();
+    Program program = new Parser().createAST(scripts.get(name));
+    String error = "";
+    try {
+      if (optimize)
+        program = Optimizer.optimize(program, scope);
+      engine.apply(out).execute(program, scope);
+    } catch (RuntimeException e) {
+      StringBuilder left = new StringBuilder("error: ").append(e.getMessage()).append("\nscope:");
+      for (int slot = 0; slot < scope.size(); slot++)
+        left.append(' ').append(scope.getSlot(0, slot));
+      error = left.append('\n').toString();
+    } finally {
+      out.flush();
+    }
+    return printed + error;
+  }
+}
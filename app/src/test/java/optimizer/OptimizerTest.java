@@ -0,0 +1,44 @@
+package optimizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import frontend.Parser;
+import frontend.ast.NodeType;
+import frontend.ast.PrintNode;
+import frontend.ast.Program;
+import runtime.RtInt;
+import runtime.Scope;
+
+/**
+ * OptimizerTest.java
+ *
+ * Dead stores depend on the scope a program runs in, folding doesn't.
+ */
+class OptimizerTest {
+
+  private static final String SOURCE = "let x = 2;\nprint(1 + 2);\n";
+
+  @Test
+  void deadDeclarationIsDropped() {
+    Program p = Optimizer.optimize(new Parser().createAST(SOURCE), Scope.createGlobalScope());
+    assertEquals(1, p.body.size());
+    assertEquals(NodeType.PRINT, p.body.get(0).getType());
+  }
+
+  @Test
+  void declarationThatWouldFailIsKept() {
+    Scope scope = Scope.createGlobalScope();
+    scope.declareVar("x", RtInt.of(1), false);
+    Program p = Optimizer.optimize(new Parser().createAST(SOURCE), scope);
+    assertEquals(2, p.body.size());
+  }
+
+  @Test
+  void foldKeepsDeclarations() {
+    Program p = Optimizer.fold(new Parser().createAST(SOURCE));
+    assertEquals(2, p.body.size());
+    assertEquals(NodeType.NUMBER, ((PrintNode) p.body.get(1)).toPrint.getType());
+  }
+}
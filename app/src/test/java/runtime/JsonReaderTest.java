@@ -0,0 +1,84 @@
+package runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * JsonReaderTest.java
+ *
+ * Documents read into runtime values, and documents that aren't JSON failing
+ * with a message that says where.
+ */
+class JsonReaderTest {
+
+  private static RtVal read(String json) throws IOException {
+    return JsonReader.read(new StringReader(json));
+  }
+
+  @Test
+  void lastValueOfADuplicateKeyWins() throws IOException {
+    RtObject o = (RtObject) read("{\"a\": 1, \"b\": 2, \"a\": \"last\"}");
+    assertEquals(2, o.getShape().size());
+    assertEquals("last", o.get("a").toString());
+    assertEquals(RtInt.of(2), o.get("b"));
+  }
+
+  @Test
+  void nestedArraysAreArrays() throws IOException {
+    RtArray outer = (RtArray) read("[[1, 2], [3, [4]], {\"k\": []}, \"s\"]");
+    assertEquals(4, outer.length());
+    RtArray first = (RtArray) outer.get(0);
+    assertTrue(first.isPacked());
+    assertEquals(RtInt.of(2), first.get(1));
+    RtArray innermost = (RtArray) ((RtArray) outer.get(1)).get(1);
+    assertEquals(RtInt.of(4), innermost.get(0));
+    assertEquals(0, ((RtArray) ((RtObject) outer.get(2)).get("k")).length());
+  }
+
+  @Test
+  void numbersTakeTheNarrowestForm() throws IOException {
+    RtArray a = (RtArray) read("[2147483647, 2147483648, -9223372036854775808, 123456789012345678901234567890,"
+        + " 1e2, 1.5E-3, -2.5e+1]");
+    assertEquals(Integer.MAX_VALUE, ((RtInt) a.get(0)).val);
+    assertEquals(2147483648L, ((RtLong) a.get(1)).val);
+    assertEquals(Long.MIN_VALUE, ((RtLong) a.get(2)).val);
+    assertEquals(new BigInteger("123456789012345678901234567890"), ((RtBigInt) a.get(3)).val);
+    assertEquals(100.0, ((RtDouble) a.get(4)).val);
+    assertEquals(0.0015, ((RtDouble) a.get(5)).val);
+    assertEquals(-25.0, ((RtDouble) a.get(6)).val);
+  }
+
+  @Test
+  void documentsLongerThanTheBuffer() throws IOException {
+    int n = 30000;
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < n; i++)
+      json.append(i == 0 ? "" : ", ").append("{\"key\": \"value ").append(i).append("\", \"n\": ").append(i).append('}');
+    RtArray a = (RtArray) read(json.append(']').toString());
+    assertEquals(n, a.length());
+    for (int i = 0; i < n; i += 997) {
+      RtObject o = (RtObject) a.get(i);
+      assertEquals("value " + i, o.get("key").toString());
+      assertEquals(i, ((RtInt) o.get("n")).val);
+    }
+  }
+
+  @Test
+  void malformedDocumentsFailWithAPosition() {
+    String[] documents = { "", "   ", "[", "[   ", "{\"a\":[", "{\"a\":1,}", "[1,]", "{", "{\"a\"", "{\"a\":",
+        "[1", "[1 2]", "{\"a\" 1}", "{a: 1}", "\"never closed", "01", "1.", "-", "1e", "tru", "nul", "[1] 2",
+        "\"\\x\"", "\"\\u12g4\"" };
+    for (String json : documents) {
+      RuntimeException e = assertThrows(RuntimeException.class, () -> read(json), json);
+      assertTrue(e.getMessage().startsWith("Invalid JSON: ") && e.getMessage().contains("(line 1, column "),
+          json + ": " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * OutputTest.java
+ *
+ * Values longer than the buffer, and values that fail half way through being
+ * rendered.
+ */
+class OutputTest {
+
+  private static final int CAPACITY = 64;
+
+  @Test
+  void valuesLongerThanTheBufferArePrintedWhole() {
+    StringWriter written = new StringWriter();
+    Output out = new Output(written, CAPACITY);
+    int[] ints = new int[100];
+    for (int i = 0; i < ints.length; i++)
+      ints[i] = i * 1000;
+    RtArray array = RtArray.of(ints);
+    RtString string = new RtString("kitkat".repeat(50));
+    out.println(new RtString("before"));
+    out.println(array);
+    out.println(string);
+    out.println(RtInt.of(1));
+    out.flush();
+    assertEquals("before\n" + array + "\n" + string + "\n1\n", written.toString());
+  }
+
+  @Test
+  void valueThatFailsToRenderPrintsNothing() {
+    for (int capacity : new int[] { CAPACITY, Output.DEFAULT_CAPACITY }) {
+      StringWriter written = new StringWriter();
+      Output out = new Output(written, capacity);
+      RtObject cyclic = new RtObject();
+      cyclic.put("a", RtInt.of(1));
+      cyclic.put("b", cyclic);
+      out.println(new RtString("before"));
+      assertThrows(StackOverflowError.class, () -> out.println(cyclic));
+      out.println(new RtString("after"));
+      out.flush();
+      assertEquals("before\nafter\n", written.toString(), "capacity " + capacity);
+    }
+  }
+}
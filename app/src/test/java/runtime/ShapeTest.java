@@ -0,0 +1,76 @@
+package runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ShapeTest.java
+ *
+ * Shapes sharing key tables along the tree, and objects switching to
+ * dictionary shapes.
+ */
+class ShapeTest {
+
+  @Test
+  void shapesOfTheSameKeysAreShared() {
+    Shape ab = Shape.EMPTY.with("shared a").with("shared b");
+    assertSame(ab, Shape.EMPTY.with("shared a").with("shared b"));
+    assertEquals(1, ab.indexOf("shared b"));
+  }
+
+  @Test
+  void parentsAndBranchesDontSeeTheirChildrensKeys() {
+    Shape a = Shape.EMPTY.with("tree a");
+    Shape ab = a.with("tree b");
+    Shape ac = a.with("tree c");
+    Shape abd = ab.with("tree d");
+    assertEquals(-1, a.indexOf("tree b"));
+    assertEquals(-1, ab.indexOf("tree d"));
+    assertEquals(-1, ac.indexOf("tree b"));
+    assertEquals(1, ac.indexOf("tree c"));
+    assertEquals(2, abd.indexOf("tree d"));
+    assertEquals("tree b", abd.key(1));
+    assertEquals("tree c", ac.key(1));
+    assertEquals(1, a.size());
+  }
+
+  @Test
+  void objectsGrownPastTheLimitGetShapesOfTheirOwn() {
+    RtObject first = new RtObject(), second = new RtObject();
+    int n = Shape.MAX_SHARED_KEYS * 3;
+    for (int i = 0; i < n; i++) {
+      first.put("grown " + i, RtInt.of(i));
+      second.put("grown " + i, RtInt.of(i));
+    }
+    assertNotSame(first.getShape(), second.getShape());
+    assertEquals(n, first.getShape().size());
+    for (int i = 0; i < n; i++)
+      assertEquals(RtInt.of(i), first.get("grown " + i));
+    first.put("grown 0", RtInt.of(-1));
+    assertEquals(RtInt.of(-1), first.get("grown 0"));
+    assertEquals(RtInt.of(0), second.get("grown 0"));
+  }
+
+  @Test
+  void shapesStopGainingTransitions() {
+    Shape root = Shape.EMPTY.with("wide root");
+    for (int i = 0; i < Shape.MAX_TRANSITIONS; i++)
+      root.with("wide " + i);
+    RtObject first = new RtObject(), second = new RtObject();
+    first.put("wide root", RtInt.of(1));
+    first.put("wide key", RtInt.of(2));
+    second.put("wide root", RtInt.of(1));
+    second.put("wide key", RtInt.of(3));
+    assertNotSame(first.getShape(), second.getShape());
+    assertEquals(RtInt.of(2), first.get("wide key"));
+    assertEquals(RtInt.of(3), second.get("wide key"));
+    // keys the shape already has a transition for still use it
+    RtObject third = new RtObject();
+    third.put("wide root", RtInt.of(1));
+    third.put("wide 0", RtInt.of(4));
+    assertSame(root.with("wide 0"), third.getShape());
+  }
+}